@@ -4,6 +4,7 @@ import reports.*;
 import model.Book;
 import model.Borrower;
 import model.Transaction;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
@@ -12,23 +13,41 @@ import datastructures.TreeMap;
 public class Main {
     public static void main(String[] args) {
         BookInventory inventory = new BookInventory();
-        BorrowerRegistry registry = new BorrowerRegistry();
-        LendingTracker tracker = new LendingTracker();
+        // Run with -Dlibrary.concurrentDesks=true when several desks share this JVM
+        BorrowerRegistry registry = Boolean.getBoolean("library.concurrentDesks")
+                ? new ConcurrentBorrowerRegistry()
+                : new HashBorrowerRegistry();
+        LendingTracker tracker;
+        try {
+            tracker = new LendingTracker();
+        } catch (IOException e) {
+            // Loans could not be made durable, so the library does not open
+            System.out.println("Failed to open transaction log: " + e.getMessage());
+            return;
+        }
+        // Run with -Dlibrary.checkpointInterval=N to snapshot the history every N logged records
+        tracker.setCheckpointInterval(Integer.getInteger("library.checkpointInterval", LendingTracker.DEFAULT_CHECKPOINT_INTERVAL));
         OverdueMonitor monitor = new OverdueMonitor();
+        tracker.setOverdueMonitor(monitor);
+        // Run with -Dlibrary.approximateReports=true for bounded-memory activity reports
+        if (Boolean.getBoolean("library.approximateReports")) {
+            tracker.enableApproximateCounts(0.001, 0.01);
+        }
         FileHandler fileHandler = new FileHandler();
         ReportGenerator reporter = new ReportGenerator();
 
         Scanner scanner = new Scanner(System.in);
 
-        // ✅ Load data from file before menu starts
-        inventory.loadBooks(fileHandler.loadBooks());
-        registry.loadBorrowers(fileHandler.loadBorrowers());
-        tracker.loadTransactions(fileHandler.loadTransactions());
+        // ✅ Load data from file before menu starts (each file read once)
+        new DataStore(fileHandler).loadAll(inventory, registry, tracker, monitor);
+        tracker.setBookInventory(inventory);
         System.out.println("Books, borrowers, and transactions loaded.");
 
         boolean running = true;
 
         while (running) {
+            // Idle between requests: write a due checkpoint now rather than inside a borrow or return
+            tracker.checkpointIfDue();
             System.out.println("\n=== EBENEZER COMMUNITY LIBRARY ===");
             System.out.println("1. Book Inventory");
             System.out.println("2. Borrower Registry");
@@ -54,7 +73,9 @@ public class Main {
                 case "0":
                     fileHandler.saveBooks(new ArrayList<>(inventory.getAllBooks()));
                     fileHandler.saveBorrowers(new ArrayList<>(registry.getAllBorrowers()));
-                    fileHandler.saveTransactions(tracker.getAllTransactions());
+                    tracker.checkpoint();
+                    tracker.close();
+                    monitor.saveLedger();
                     System.out.println("Books, borrowers, and transactions saved to file. Goodbye!");
                     running = false;
                     break;
@@ -78,6 +99,8 @@ public class Main {
             System.out.println("3. List All Books");
             System.out.println("4. List Books by Category");
             System.out.println("5. Filter Categories by Prefix");
+            System.out.println("6. Search Books by Keyword");
+            System.out.println("7. Autocomplete Title or Author");
             System.out.println("0. Back to Main Menu");
             System.out.print("Choose an option: ");
             String choice = scanner.nextLine().trim();
@@ -98,6 +121,12 @@ public class Main {
                 case "5":
                     filterByPrefix(scanner, inventory);
                     break;
+                case "6":
+                    searchBooks(scanner, inventory);
+                    break;
+                case "7":
+                    autocompleteBooks(scanner, inventory);
+                    break;
                 case "0":
                     managing = false;
                     break;
@@ -172,6 +201,36 @@ public class Main {
         }
     }
 
+    private static void searchBooks(Scanner scanner, BookInventory inventory) {
+        System.out.print("Enter keywords: ");
+        String keywords = scanner.nextLine().trim();
+        List<Book> results = inventory.keywordSearch(keywords);
+        String suggestion = inventory.didYouMean(keywords);
+        if (suggestion != null) {
+            System.out.println("Did you mean: " + suggestion + "?");
+        }
+        if (results.isEmpty()) {
+            System.out.println("No matching books.");
+        } else {
+            for (Book book : results) {
+                System.out.println(book);
+            }
+        }
+    }
+
+    private static void autocompleteBooks(Scanner scanner, BookInventory inventory) {
+        System.out.print("Start typing a title or author: ");
+        String prefix = scanner.nextLine();
+        List<Book> results = inventory.autocomplete(prefix, 10);
+        if (results.isEmpty()) {
+            System.out.println("No matching books.");
+        } else {
+            for (Book book : results) {
+                System.out.println(book);
+            }
+        }
+    }
+
     // === Borrower Registry Menu and Helpers ===
 
     private static void borrowerRegistryMenu(Scanner scanner, BorrowerRegistry registry) {
@@ -285,6 +344,7 @@ public class Main {
     private static void transactionMenu(Scanner scanner, LendingTracker tracker, BookInventory inventory, BorrowerRegistry registry) {
         boolean managing = true;
         while (managing) {
+            tracker.checkpointIfDue();
             System.out.println("\n--- Transaction Menu ---");
             System.out.println("1. Borrow Book");
             System.out.println("2. Return Book");
@@ -347,11 +407,15 @@ public class Main {
         System.out.print("Enter Return Date (YYYY-MM-DD): ");
         String returnDate = scanner.nextLine().trim();
 
-        boolean success = tracker.returnBook(isbn, borrowerId, returnDate);
-        if (success) {
-            System.out.println("Book returned successfully.");
-        } else {
-            System.out.println("Matching transaction not found.");
+        try {
+            boolean success = tracker.returnBook(isbn, borrowerId, returnDate);
+            if (success) {
+                System.out.println("Book returned successfully.");
+            } else {
+                System.out.println("Matching transaction not found.");
+            }
+        } catch (Exception e) {
+            System.out.println("Failed to return book: " + e.getMessage());
         }
     }
     private static void reportsMenu(Scanner scanner, ReportGenerator reporter, LendingTracker tracker, BorrowerRegistry registry, BookInventory inventory, OverdueMonitor monitor) {  // 👈 New: create a monitor instance
@@ -362,24 +426,38 @@ public class Main {
             System.out.println("2. Top Borrowers by Fines");
             System.out.println("3. Inventory by Category");
             System.out.println("4. Run Overdue Check and Update Fines");  // 👈 New option
+            System.out.println("5. Borrowing Activity (Last 30 Days)");
             System.out.println("0. Back to Main Menu");
             System.out.print("Choose an option: ");
             String option = scanner.nextLine().trim();
 
             switch (option) {
                 case "1":
-                    reporter.mostBorrowedBooks(tracker.getAllTransactions());
+                    if (tracker.getApproximateActivity() != null) {
+                        reporter.mostBorrowedBooksApproximate(tracker);
+                    } else {
+                        reporter.mostBorrowedBooks(tracker);
+                    }
                     break;
                 case "2":
-                    reporter.highestFinesOwed(registry.getAllBorrowers());
+                    reporter.highestFinesOwed(registry);
                     break;
                 case "3":
                     reporter.categoryDistribution(new ArrayList<>(inventory.getAllBooks()));
                     break;
                 case "4":
-                    monitor.checkOverdue(tracker.getAllTransactions());
-                    monitor.updateFines(registry.getAllBorrowers());
-                    System.out.println("Overdue check complete. Fines updated.");
+                    int newlyOverdue = monitor.advanceTo(java.time.LocalDate.now()).size();
+                    monitor.updateFines(registry);
+                    System.out.println("Overdue check complete. " + newlyOverdue + " newly overdue, "
+                            + monitor.getOverdueCount() + " overdue in total. Fines updated.");
+                    Transaction longest = monitor.getLongestOverdue();
+                    if (longest != null) {
+                        System.out.println("Longest overdue: ISBN " + longest.getBookIsbn() + " with borrower "
+                                + longest.getBorrowerId() + ", due " + longest.getDueDate());
+                    }
+                    break;
+                case "5":
+                    reporter.borrowingActivity(tracker.getColumnStore());
                     break;
                 case "0":
                     reporting = false;
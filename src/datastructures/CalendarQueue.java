@@ -0,0 +1,96 @@
+package datastructures;
+
+import java.util.function.Consumer;
+
+/**
+ * Day-bucketed calendar queue. Items are filed under the day (any long,
+ * e.g. an epoch day) they become due, and pollBefore hands out whole
+ * buckets as days roll over, so the cost of an advance is proportional to
+ * the items falling due rather than to everything scheduled.
+ * Items are matched by equals/hashCode; identity for classes that do not override them.
+ */
+public class CalendarQueue<T> {
+    private TreeMap<Long, HashMap<T, T>> buckets;
+    private HashMap<T, Long> dayOf;
+
+    public CalendarQueue() {
+        buckets = new TreeMap<>();
+        dayOf = new HashMap<>();
+    }
+
+    /**
+     * Files the item under the given day, moving it if it was already scheduled.
+     * Time complexity: O(log d) for d distinct days.
+     */
+    public void schedule(T item, long day) {
+        cancel(item);
+        HashMap<T, T> bucket = buckets.get(day);
+        if (bucket == null) {
+            bucket = new HashMap<>();
+            buckets.put(day, bucket);
+        }
+        bucket.put(item, item);
+        dayOf.put(item, day);
+    }
+
+    /**
+     * Removes a scheduled item.
+     * @return true if the item was scheduled.
+     */
+    public boolean cancel(T item) {
+        Long day = dayOf.remove(item);
+        if (day == null) return false;
+
+        HashMap<T, T> bucket = buckets.get(day);
+        bucket.remove(item);
+        if (bucket.size() == 0) {
+            buckets.remove(day);
+        }
+        return true;
+    }
+
+    public boolean contains(T item) {
+        return dayOf.containsKey(item);
+    }
+
+    /**
+     * Removes every item due strictly before the given day and passes each to the consumer.
+     * @return the number of items handed out.
+     */
+    @SuppressWarnings("unchecked")
+    public int pollBefore(long day, Consumer<T> consumer) {
+        int fired = 0;
+        while (!buckets.isEmpty()) {
+            Long first = buckets.firstKey();
+            if (first >= day) break;
+
+            HashMap<T, T> bucket = buckets.remove(first);
+            for (T item : bucket.keySetArray((T[]) new Object[0])) {
+                dayOf.remove(item);
+                consumer.accept(item);
+                fired++;
+            }
+        }
+        return fired;
+    }
+
+    /**
+     * Earliest scheduled day, or null when empty.
+     */
+    public Long firstDay() {
+        return buckets.firstKey();
+    }
+
+    public int size() {
+        return dayOf.size();
+    }
+
+    public boolean isEmpty() {
+        return dayOf.size() == 0;
+    }
+
+    public void clear() {
+        buckets = new TreeMap<>();
+        dayOf.clear();
+    }
+}
@@ -0,0 +1,437 @@
+package datastructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Radix trie for type-ahead: maps string keys to values, each value carrying
+ * a weight (e.g. how often a book is borrowed). Chains of single-child nodes
+ * are collapsed into one edge label, and every node remembers the largest
+ * weight below it, so the top N completions of a prefix are found best-first
+ * without visiting the rest of the subtree. A value may be stored under
+ * several keys and is returned once.
+ * Keys are matched exactly; callers fold case before inserting and querying.
+ */
+public class CompletionTrie<V> {
+
+    private static final class Node<V> {
+        String label;         // edge label from the parent
+        Node<V> parent;
+        Node<V>[] children;   // sorted by the first char of their labels
+        int childCount;
+        Object[] values;      // values stored under the key ending here
+        int valueCount;
+        long best;            // largest weight in this subtree
+
+        Node(String label, Node<V> parent) {
+            this.label = label;
+            this.parent = parent;
+        }
+    }
+
+    // A node still to expand, or a value ready to emit, in best-first order
+    private static final class Candidate<V> {
+        final Node<V> node;   // null for a value
+        final V value;
+        final String key;     // no key reachable from the candidate sorts before it
+        final long weight;    // no weight reachable from the candidate exceeds it
+        // Set when only the children ranked below this one remain to be expanded
+        final Node<V> after;
+
+        Candidate(Node<V> node, V value, String key, long weight, Node<V> after) {
+            this.node = node;
+            this.value = value;
+            this.key = key;
+            this.weight = weight;
+            this.after = after;
+        }
+    }
+
+    private Node<V> root;
+    private HashMap<V, Long> weights;
+    // Nodes each value is stored at, for re-ranking when its weight changes
+    private HashMap<V, List<Node<V>>> locations;
+    private int size;
+    private int nodeCount;
+
+    public CompletionTrie() {
+        clear();
+    }
+
+    /**
+     * Stores the value under the key. Time complexity: O(k) for a key of length k.
+     */
+    public void insert(String key, V value) {
+        Node<V> node = root;
+        int i = 0;
+        while (i < key.length()) {
+            int slot = childSlot(node, key.charAt(i));
+            if (slot < 0) {
+                Node<V> leaf = new Node<>(key.substring(i), node);
+                attach(node, leaf, -slot - 1);
+                node = leaf;
+                break;
+            }
+            Node<V> child = node.children[slot];
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                // Split the edge where the key leaves it
+                Node<V> middle = new Node<>(child.label.substring(0, common), node);
+                node.children[slot] = middle;
+                child.label = child.label.substring(common);
+                child.parent = middle;
+                attach(middle, child, 0); // counts the new middle node
+                middle.best = child.best;
+            }
+            node = node.children[slot];
+            i += common;
+        }
+
+        for (int v = 0; v < node.valueCount; v++) {
+            if (node.values[v].equals(value)) return;
+        }
+        if (node.values == null) {
+            node.values = new Object[1];
+        } else if (node.valueCount == node.values.length) {
+            node.values = Arrays.copyOf(node.values, node.valueCount * 2);
+        }
+        node.values[node.valueCount++] = value;
+        List<Node<V>> at = locations.get(value);
+        if (at == null) {
+            at = new ArrayList<>(2);
+            locations.put(value, at);
+        }
+        at.add(node);
+        size++;
+        updateBest(node);
+    }
+
+    /**
+     * Removes the value from under the key, merging nodes left with a single child.
+     * @return true if it was stored there.
+     */
+    public boolean remove(String key, V value) {
+        Node<V> node = find(key);
+        if (node == null || node.label.length() != matchedLength(key, node)) return false;
+
+        int v = 0;
+        while (v < node.valueCount && !node.values[v].equals(value)) v++;
+        if (v == node.valueCount) return false;
+        node.values[v] = node.values[--node.valueCount];
+        node.values[node.valueCount] = null;
+        size--;
+
+        List<Node<V>> at = locations.get(value);
+        at.remove(node);
+        if (at.isEmpty()) {
+            locations.remove(value);
+            weights.remove(value);
+        }
+
+        Node<V> parent = node.parent;
+        if (node.valueCount == 0 && node.childCount == 0 && node != root) {
+            detach(parent, node);
+            node = parent;
+        }
+        if (node.valueCount == 0 && node.childCount == 1 && node != root) {
+            node = mergeWithChild(node);
+        }
+        updateBest(node);
+        return true;
+    }
+
+    /**
+     * Sets the weight used to rank the value; values without one weigh 0.
+     * Time complexity: O(d * c) for depth d and c children per node on the path.
+     */
+    public void setWeight(V value, long weight) {
+        weights.put(value, weight);
+        List<Node<V>> at = locations.get(value);
+        if (at == null) return;
+        for (Node<V> node : at) {
+            updateBest(node);
+        }
+    }
+
+    public long getWeight(V value) {
+        Long weight = weights.get(value);
+        return weight == null ? 0 : weight;
+    }
+
+    /**
+     * Up to limit distinct values stored under keys starting with the prefix,
+     * heaviest first, ties in key order.
+     * Time complexity: O(p + limit * d * log(limit * d)) for a prefix of length
+     * p and depth d below it, independent of how many keys share the prefix.
+     */
+    public List<V> complete(String prefix, int limit) {
+        List<V> result = new ArrayList<>();
+        if (limit <= 0) return result;
+        Node<V> start = find(prefix);
+        if (start == null) return result;
+
+        String startKey = prefix.substring(0, prefix.length() - matchedLength(prefix, start)) + start.label;
+        PriorityQueue<Candidate<V>> frontier = new PriorityQueue<>((a, b) -> {
+            int byWeight = Long.compare(b.weight, a.weight);
+            return byWeight != 0 ? byWeight : a.key.compareTo(b.key);
+        });
+        frontier.offer(new Candidate<>(start, null, startKey, start.best, null));
+
+        while (!frontier.isEmpty() && result.size() < limit) {
+            Candidate<V> next = frontier.poll();
+            if (next.node == null) {
+                if (!result.contains(next.value)) result.add(next.value);
+                continue;
+            }
+            Node<V> node = next.node;
+            String nodeKey = next.key;
+            if (next.after == null) {
+                for (int v = 0; v < node.valueCount; v++) {
+                    V value = value(node, v);
+                    frontier.offer(new Candidate<>(null, value, nodeKey, getWeight(value), null));
+                }
+            } else {
+                nodeKey = nodeKey.substring(0, pathLength(node));
+            }
+            expandChildren(node, nodeKey, next.after, limit - result.size(), frontier);
+        }
+        return result;
+    }
+
+    /*
+     * Queues the best `wanted` children ranked below `after` (all children if
+     * null). A node can have thousands of children, and at most `wanted` more
+     * values are needed, so the rest wait behind one candidate bounded by the
+     * best of them, and are only looked at if that candidate comes up.
+     */
+    private void expandChildren(Node<V> node, String nodeKey, Node<V> after, int wanted,
+                                PriorityQueue<Candidate<V>> frontier) {
+        Node<V>[] chosen = newNodeArray(Math.min(wanted, node.childCount));
+        int count = 0;
+        int lowest = -1; // index of the lowest-ranked chosen child once chosen is full
+        Node<V> bestLeftOut = null;
+        for (int c = 0; c < node.childCount; c++) {
+            Node<V> child = node.children[c];
+            if (after != null && !ranksAbove(after, child)) continue;
+            if (count < chosen.length) {
+                chosen[count++] = child;
+                continue;
+            }
+            if (lowest < 0) lowest = lowestRanked(chosen, count);
+            Node<V> out = child;
+            if (ranksAbove(child, chosen[lowest])) {
+                out = chosen[lowest];
+                chosen[lowest] = child;
+                lowest = lowestRanked(chosen, count);
+            }
+            if (bestLeftOut == null || ranksAbove(out, bestLeftOut)) bestLeftOut = out;
+        }
+
+        for (int i = 0; i < count; i++) {
+            Node<V> child = chosen[i];
+            frontier.offer(new Candidate<>(child, null, nodeKey + child.label, child.best, null));
+        }
+        if (bestLeftOut != null) {
+            Node<V> lowestChosen = chosen[lowestRanked(chosen, count)];
+            frontier.offer(new Candidate<>(node, null, nodeKey + bestLeftOut.label, bestLeftOut.best, lowestChosen));
+        }
+    }
+
+    private static <V> int lowestRanked(Node<V>[] nodes, int count) {
+        int lowest = 0;
+        for (int i = 1; i < count; i++) {
+            if (ranksAbove(nodes[lowest], nodes[i])) lowest = i;
+        }
+        return lowest;
+    }
+
+    // Sibling order for expansion: heavier subtree first, then by label
+    private static <V> boolean ranksAbove(Node<V> a, Node<V> b) {
+        if (a.best != b.best) return a.best > b.best;
+        return a.label.charAt(0) < b.label.charAt(0);
+    }
+
+    /**
+     * Keys within maxDistance edits (Levenshtein) of the query, mapped to
+     * their distance, closest first, ties in key order. The walk carries one row of the edit-distance table
+     * per character of the path, in effect running a Levenshtein automaton
+     * over the trie: a branch is dropped as soon as every entry of its row
+     * exceeds maxDistance, so only keys with a near prefix are visited.
+     */
+    public Map<String, Integer> keysWithin(String query, int maxDistance) {
+        List<String> keys = new ArrayList<>();
+        List<Integer> distances = new ArrayList<>();
+        int[] row = new int[query.length() + 1];
+        for (int j = 0; j <= query.length(); j++) row[j] = j;
+        collectWithin(root, row, new StringBuilder(), query, maxDistance, keys, distances);
+
+        Integer[] order = new Integer[keys.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (x, y) -> {
+            int byDistance = Integer.compare(distances.get(x), distances.get(y));
+            return byDistance != 0 ? byDistance : keys.get(x).compareTo(keys.get(y));
+        });
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int i : order) result.put(keys.get(i), distances.get(i));
+        return result;
+    }
+
+    // row holds the distances from the path so far to each prefix of the query
+    private void collectWithin(Node<V> node, int[] row, StringBuilder path, String query, int maxDistance,
+                               List<String> keys, List<Integer> distances) {
+        int pathLength = path.length();
+        for (int c = 0; c < node.label.length(); c++) {
+            char ch = node.label.charAt(c);
+            int[] next = new int[row.length];
+            next[0] = row[0] + 1;
+            int rowMin = next[0];
+            for (int j = 1; j < row.length; j++) {
+                int substitute = row[j - 1] + (query.charAt(j - 1) == ch ? 0 : 1);
+                next[j] = Math.min(substitute, Math.min(row[j], next[j - 1]) + 1);
+                rowMin = Math.min(rowMin, next[j]);
+            }
+            if (rowMin > maxDistance) {
+                path.setLength(pathLength);
+                return;
+            }
+            path.append(ch);
+            row = next;
+        }
+
+        if (node.valueCount > 0 && row[row.length - 1] <= maxDistance) {
+            keys.add(path.toString());
+            distances.add(row[row.length - 1]);
+        }
+        for (int c = 0; c < node.childCount; c++) {
+            collectWithin(node.children[c], row, path, query, maxDistance, keys, distances);
+        }
+        path.setLength(pathLength);
+    }
+
+    /**
+     * Number of (key, value) pairs stored.
+     */
+    public int size() {
+        return size;
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public void clear() {
+        root = new Node<>("", null);
+        weights = new HashMap<>();
+        locations = new HashMap<>();
+        size = 0;
+        nodeCount = 1;
+    }
+
+    // The node whose path first covers the whole key, or null if no key starts with it
+    private Node<V> find(String key) {
+        Node<V> node = root;
+        int i = 0;
+        while (i < key.length()) {
+            int slot = childSlot(node, key.charAt(i));
+            if (slot < 0) return null;
+            node = node.children[slot];
+            int common = commonPrefix(node.label, key, i);
+            if (common < node.label.length() && i + common < key.length()) return null;
+            i += common;
+        }
+        return node;
+    }
+
+    // How much of the node's label the key covers, given that find(key) returned it
+    private int matchedLength(String key, Node<V> node) {
+        return node.label.length() - (pathLength(node) - key.length());
+    }
+
+    // Length of the key spelled out from the root to the end of the node's label
+    private int pathLength(Node<V> node) {
+        int length = 0;
+        for (Node<V> n = node; n != root; n = n.parent) {
+            length += n.label.length();
+        }
+        return length;
+    }
+
+    // Recomputes best from the node up, stopping once an ancestor is unchanged
+    private void updateBest(Node<V> node) {
+        while (node != null) {
+            long best = 0;
+            for (int v = 0; v < node.valueCount; v++) {
+                best = Math.max(best, getWeight(value(node, v)));
+            }
+            for (int c = 0; c < node.childCount; c++) {
+                best = Math.max(best, node.children[c].best);
+            }
+            if (best == node.best) return;
+            node.best = best;
+            node = node.parent;
+        }
+    }
+
+    // Folds a valueless node into its only child; returns the merged node
+    private Node<V> mergeWithChild(Node<V> node) {
+        Node<V> child = node.children[0];
+        child.label = node.label + child.label;
+        child.parent = node.parent;
+        Node<V> parent = node.parent;
+        parent.children[childSlot(parent, node.label.charAt(0))] = child;
+        nodeCount--;
+        return child;
+    }
+
+    private void attach(Node<V> parent, Node<V> child, int slot) {
+        if (parent.children == null) {
+            parent.children = newNodeArray(2);
+        } else if (parent.childCount == parent.children.length) {
+            parent.children = Arrays.copyOf(parent.children, parent.childCount * 2);
+        }
+        System.arraycopy(parent.children, slot, parent.children, slot + 1, parent.childCount - slot);
+        parent.children[slot] = child;
+        parent.childCount++;
+        nodeCount++;
+    }
+
+    private void detach(Node<V> parent, Node<V> child) {
+        int slot = childSlot(parent, child.label.charAt(0));
+        System.arraycopy(parent.children, slot + 1, parent.children, slot, parent.childCount - slot - 1);
+        parent.children[--parent.childCount] = null;
+        nodeCount--;
+    }
+
+    // Binary search on first chars; -(insertion point) - 1 when absent
+    private int childSlot(Node<V> node, char first) {
+        int low = 0, high = node.childCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char c = node.children[mid].label.charAt(0);
+            if (c < first) low = mid + 1;
+            else if (c > first) high = mid - 1;
+            else return mid;
+        }
+        return -low - 1;
+    }
+
+    private static int commonPrefix(String label, String key, int from) {
+        int n = Math.min(label.length(), key.length() - from);
+        int i = 0;
+        while (i < n && label.charAt(i) == key.charAt(from + i)) i++;
+        return i;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(Node<V> node, int index) {
+        return (V) node.values[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    private Node<V>[] newNodeArray(int length) {
+        return (Node<V>[]) new Node<?>[length];
+    }
+}
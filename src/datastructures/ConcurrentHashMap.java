@@ -0,0 +1,341 @@
+package datastructures;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Thread-safe hash map using lock striping.
+ * Keys are spread over a fixed number of segments, each with its own lock and
+ * its own chained table. Writers lock only their segment; readers take no lock
+ * at all. Chain links are final and tables are published through volatile
+ * fields, so a reader always sees a consistent chain. Each segment resizes on
+ * its own while the other segments stay available.
+ * The compute methods run a caller's function under the segment lock, for
+ * check-then-act updates that must not interleave with other writers of
+ * the same key.
+ */
+public class ConcurrentHashMap<K, V> {
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+    private static final int SEGMENT_INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int MAX_SEGMENTS = 1 << 16;
+
+    private final Segment<K, V>[] segments;
+    private final int segmentShift;
+
+    public ConcurrentHashMap() {
+        this(DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * @param concurrencyLevel Expected number of concurrent writers; rounded up to a power of two.
+     */
+    public ConcurrentHashMap(int concurrencyLevel) {
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("Concurrency level must be positive: " + concurrencyLevel);
+        }
+        int count = 1, bits = 0;
+        while (count < concurrencyLevel && count < MAX_SEGMENTS) {
+            count <<= 1;
+            bits++;
+        }
+        segments = newSegmentArray(count);
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>();
+        }
+        segmentShift = 32 - bits;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Segment<K, V>[] newSegmentArray(int length) {
+        return (Segment<K, V>[]) new Segment<?, ?>[length];
+    }
+
+    private static int spread(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // High bits pick the segment, low bits pick the bin inside it
+    private Segment<K, V> segmentFor(int hash) {
+        return segments.length == 1 ? segments[0] : segments[hash >>> segmentShift];
+    }
+
+    /**
+     * Lock-free lookup.
+     */
+    public V get(K key) {
+        int hash = spread(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    public boolean containsKey(K key) {
+        int hash = spread(key);
+        return segmentFor(hash).find(key, hash) != null;
+    }
+
+    public void put(K key, V value) {
+        checkValue(value);
+        int hash = spread(key);
+        segmentFor(hash).put(key, hash, value, false);
+    }
+
+    /**
+     * Atomically inserts the mapping unless the key is already present.
+     * @return the existing value, or null if the value was inserted.
+     */
+    public V putIfAbsent(K key, V value) {
+        checkValue(value);
+        int hash = spread(key);
+        return segmentFor(hash).put(key, hash, value, true);
+    }
+
+    public V remove(K key) {
+        int hash = spread(key);
+        return segmentFor(hash).remove(key, hash, null);
+    }
+
+    /**
+     * Atomically removes the key only if it is currently mapped to the given value.
+     * @return true if the entry was removed.
+     */
+    public boolean remove(K key, V value) {
+        checkValue(value);
+        int hash = spread(key);
+        return segmentFor(hash).remove(key, hash, value) != null;
+    }
+
+    /**
+     * Atomically replaces the key's value with remapping(key, current), where
+     * current is null if the key is absent; a null result removes the key.
+     * The function runs under the segment lock, so other writers to keys of
+     * the same segment wait for it: keep it short, and do not modify this map
+     * from inside it.
+     * @return the new value, or null if the key is now absent.
+     */
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remapping) {
+        int hash = spread(key);
+        return segmentFor(hash).compute(key, hash, remapping);
+    }
+
+    /**
+     * Atomically inserts mapping(key) if the key is absent (nothing if it returns null).
+     * @return the value now mapped: the existing one or the inserted one.
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mapping) {
+        return compute(key, (k, current) -> current != null ? current : mapping.apply(k));
+    }
+
+    /**
+     * Atomically replaces a present key's value with remapping(key, current);
+     * a null result removes the key. Absent keys are left alone.
+     * @return the new value, or null if the key is now absent.
+     */
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remapping) {
+        return compute(key, (k, current) -> current == null ? null : remapping.apply(k, current));
+    }
+
+    private static void checkValue(Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("ConcurrentHashMap does not allow null values");
+        }
+    }
+
+    /**
+     * Sum of the segment counts; exact when no writers are active.
+     */
+    public int size() {
+        long total = 0;
+        for (Segment<K, V> segment : segments) {
+            total += segment.count;
+        }
+        return (int) Math.min(total, Integer.MAX_VALUE);
+    }
+
+    public boolean isEmpty() {
+        for (Segment<K, V> segment : segments) {
+            if (segment.count != 0) return false;
+        }
+        return true;
+    }
+
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Weakly consistent snapshot of the keys: reflects every update that
+     * completed before the call, and possibly some made during it.
+     */
+    public K[] keySetArray(K[] a) {
+        List<K> result = new ArrayList<>(size());
+        for (Segment<K, V> segment : segments) {
+            AtomicReferenceArray<Node<K, V>> table = segment.table;
+            for (int i = 0; i < table.length(); i++) {
+                for (Node<K, V> e = table.get(i); e != null; e = e.next) {
+                    result.add(e.key);
+                }
+            }
+        }
+        return result.toArray(a);
+    }
+
+    /**
+     * Weakly consistent snapshot of the values, see keySetArray.
+     */
+    public V[] valuesArray(V[] a) {
+        List<V> result = new ArrayList<>(size());
+        for (Segment<K, V> segment : segments) {
+            AtomicReferenceArray<Node<K, V>> table = segment.table;
+            for (int i = 0; i < table.length(); i++) {
+                for (Node<K, V> e = table.get(i); e != null; e = e.next) {
+                    result.add(e.value);
+                }
+            }
+        }
+        return result.toArray(a);
+    }
+
+    /**
+     * Chain node. Only the value is mutable; removal rebuilds the chain
+     * prefix instead of unlinking, so concurrent readers never see a broken chain.
+     */
+    private static final class Node<K, V> {
+        final int hash;
+        final K key;
+        volatile V value;
+        final Node<K, V> next;
+
+        Node(int hash, K key, V value, Node<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    private static final class Segment<K, V> {
+        final ReentrantLock lock = new ReentrantLock(); // held by writers only
+        volatile AtomicReferenceArray<Node<K, V>> table = new AtomicReferenceArray<>(SEGMENT_INITIAL_CAPACITY);
+        volatile int count;
+
+        Node<K, V> find(Object key, int hash) {
+            AtomicReferenceArray<Node<K, V>> tab = table;
+            for (Node<K, V> e = tab.get(hash & (tab.length() - 1)); e != null; e = e.next) {
+                if (e.hash == hash && e.key.equals(key)) return e;
+            }
+            return null;
+        }
+
+        V get(Object key, int hash) {
+            Node<K, V> e = find(key, hash);
+            return e == null ? null : e.value;
+        }
+
+        V put(K key, int hash, V value, boolean onlyIfAbsent) {
+            lock.lock();
+            try {
+                Node<K, V> existing = find(key, hash);
+                if (existing != null) {
+                    V old = existing.value;
+                    if (!onlyIfAbsent) existing.value = value;
+                    return old;
+                }
+                insert(key, hash, value);
+                return null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        V compute(K key, int hash, BiFunction<? super K, ? super V, ? extends V> remapping) {
+            lock.lock();
+            try {
+                Node<K, V> existing = find(key, hash);
+                V value = remapping.apply(key, existing == null ? null : existing.value);
+                if (value != null) {
+                    if (existing != null) {
+                        existing.value = value;
+                    } else {
+                        insert(key, hash, value);
+                    }
+                } else if (existing != null) {
+                    unlink(existing);
+                }
+                return value;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Called with the lock held, for a key that is not present
+        private void insert(K key, int hash, V value) {
+            AtomicReferenceArray<Node<K, V>> tab = table;
+            if (count + 1 > tab.length() * LOAD_FACTOR) {
+                tab = rehash(tab);
+            }
+            int index = hash & (tab.length() - 1);
+            tab.set(index, new Node<>(hash, key, value, tab.get(index)));
+            count = count + 1;
+        }
+
+        V remove(Object key, int hash, V expected) {
+            lock.lock();
+            try {
+                Node<K, V> e = find(key, hash);
+                if (e == null) return null;
+
+                V old = e.value;
+                if (expected != null && !expected.equals(old)) return null;
+                unlink(e);
+                return old;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Called with the lock held. Copies the nodes ahead of e onto the tail that follows it.
+        private void unlink(Node<K, V> e) {
+            AtomicReferenceArray<Node<K, V>> tab = table;
+            int index = e.hash & (tab.length() - 1);
+            Node<K, V> first = tab.get(index);
+            Node<K, V> newFirst = e.next;
+            for (Node<K, V> p = first; p != e; p = p.next) {
+                newFirst = new Node<>(p.hash, p.key, p.value, newFirst);
+            }
+            tab.set(index, newFirst);
+            count = count - 1;
+        }
+
+        // Called with the lock held. Readers keep using the old table until the new one is published.
+        private AtomicReferenceArray<Node<K, V>> rehash(AtomicReferenceArray<Node<K, V>> oldTable) {
+            int newCapacity = oldTable.length() << 1;
+            AtomicReferenceArray<Node<K, V>> newTable = new AtomicReferenceArray<>(newCapacity);
+            int mask = newCapacity - 1;
+            for (int i = 0; i < oldTable.length(); i++) {
+                for (Node<K, V> e = oldTable.get(i); e != null; e = e.next) {
+                    int index = e.hash & mask;
+                    newTable.set(index, new Node<>(e.hash, e.key, e.value, newTable.get(index)));
+                }
+            }
+            table = newTable;
+            return newTable;
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                table = new AtomicReferenceArray<>(SEGMENT_INITIAL_CAPACITY);
+                count = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package datastructures;
+
+import java.util.Arrays;
+
+/**
+ * Count-Min Sketch: approximate per-key counts in fixed memory.
+ * For a sketch built with (epsilon, delta), every estimate is at least the
+ * true count and, with probability 1 - delta, at most the true count plus
+ * epsilon times the total of all counts added.
+ * Sketches with the same dimensions use the same hash functions, so sketches
+ * filled separately (e.g. one per branch) can be merged by adding cells.
+ */
+public class CountMinSketch {
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+    private final int width;
+    private final int depth;
+    private final long[] cells; // depth rows of width cells
+    private final long[] rowSeeds;
+    private long totalCount;
+
+    /**
+     * @param epsilon Additive error bound as a fraction of the total count, in (0, 1).
+     * @param delta   Probability of exceeding that bound, in (0, 1).
+     */
+    public CountMinSketch(double epsilon, double delta) {
+        this(widthFor(epsilon), depthFor(delta));
+    }
+
+    private CountMinSketch(int width, int depth) {
+        if ((long) width * depth > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Sketch too large: " + width + " x " + depth);
+        }
+        this.width = width;
+        this.depth = depth;
+        this.cells = new long[width * depth];
+        this.rowSeeds = new long[depth];
+        long seed = SEED;
+        for (int i = 0; i < depth; i++) {
+            seed = mix(seed + i);
+            rowSeeds[i] = seed;
+        }
+    }
+
+    private static int widthFor(double epsilon) {
+        if (!(epsilon > 0 && epsilon < 1)) {
+            throw new IllegalArgumentException("Epsilon must be in (0, 1): " + epsilon);
+        }
+        return (int) Math.ceil(Math.E / epsilon);
+    }
+
+    private static int depthFor(double delta) {
+        if (!(delta > 0 && delta < 1)) {
+            throw new IllegalArgumentException("Delta must be in (0, 1): " + delta);
+        }
+        return Math.max(1, (int) Math.ceil(Math.log(1 / delta)));
+    }
+
+    // 64-bit finaliser from MurmurHash3
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private int cell(int row, int keyHash) {
+        long h = mix(keyHash ^ rowSeeds[row]);
+        return row * width + (int) ((h >>> 1) % width);
+    }
+
+    /**
+     * Adds count occurrences of the key.
+     * Time complexity: O(depth).
+     */
+    public void add(Object key, long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count must not be negative: " + count);
+        }
+        int keyHash = key.hashCode();
+        for (int row = 0; row < depth; row++) {
+            cells[cell(row, keyHash)] += count;
+        }
+        totalCount += count;
+    }
+
+    /**
+     * Upper-bound estimate of the key's count.
+     * Time complexity: O(depth).
+     */
+    public long estimate(Object key) {
+        int keyHash = key.hashCode();
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, cells[cell(row, keyHash)]);
+        }
+        return min;
+    }
+
+    /**
+     * Adds another sketch's counts into this one.
+     * @throws IllegalArgumentException if the sketches were built with different error bounds.
+     */
+    public void merge(CountMinSketch other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("Cannot merge sketches of different dimensions");
+        }
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] += other.cells[i];
+        }
+        totalCount += other.totalCount;
+    }
+
+    /**
+     * A new, empty sketch with the same dimensions, mergeable with this one.
+     */
+    public CountMinSketch emptyCopy() {
+        return new CountMinSketch(width, depth);
+    }
+
+    /**
+     * Largest overestimate to expect (with probability 1 - delta) at the current total.
+     */
+    public long getErrorBound() {
+        return (long) Math.ceil(Math.E / width * totalCount);
+    }
+
+    public long getTotalCount() { return totalCount; }
+    public int getWidth() { return width; }
+    public int getDepth() { return depth; }
+
+    public void clear() {
+        Arrays.fill(cells, 0);
+        totalCount = 0;
+    }
+}
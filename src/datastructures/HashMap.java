@@ -1,76 +1,179 @@
 package datastructures;
 
+/**
+ * Open-addressing hash map with linear probing over parallel key/value arrays.
+ * Capacity is a power of two and the table doubles once size exceeds
+ * capacity * loadFactor, so lookups stay O(1) average as the map grows.
+ * Removal uses backward-shift deletion, so no tombstones build up.
+ */
 public class HashMap<K, V> {
     private static final int INITIAL_CAPACITY = 16;
+    private static final float DEFAULT_LOAD_FACTOR = 0.5f;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
 
-    private Node<K, V>[] table;
+    private final int initialCapacity;
+    private final float loadFactor;
+
+    private K[] keys;
+    private V[] values;
+    private int mask;
+    private int threshold;
     private int size;
 
     public HashMap() {
-        table = new Node[INITIAL_CAPACITY];
-        size = 0;
+        this(INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
     }
 
-    private int hash(K key) {
-        return Math.abs(key.hashCode()) % table.length;
+    public HashMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
     }
 
-    public void put(K key, V value) {
-        int index = hash(key);
-        Node<K, V> head = table[index];
+    /**
+     * @param initialCapacity Number of entries to hold before the first resize.
+     * @param loadFactor Maximum fill ratio of the table, in (0, 1).
+     */
+    public HashMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+        }
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("Load factor must be between 0 and 1: " + loadFactor);
+        }
+        this.loadFactor = loadFactor;
+        this.initialCapacity = tableSizeFor(initialCapacity);
+        allocate(this.initialCapacity);
+    }
 
-        while (head != null) {
-            if (head.key.equals(key)) {
-                head.value = value;
-                return;
-            }
-            head = head.next;
+    // Smallest power-of-two table that holds the given number of entries under the load factor.
+    private int tableSizeFor(int entries) {
+        long needed = (long) Math.ceil(entries / (double) loadFactor) + 1;
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < needed && capacity < MAXIMUM_CAPACITY) {
+            capacity <<= 1;
         }
+        return capacity;
+    }
 
-        Node<K, V> newNode = new Node<>(key, value);
-        newNode.next = table[index];
-        table[index] = newNode;
-        size++;
+    @SuppressWarnings("unchecked")
+    private void allocate(int capacity) {
+        keys = (K[]) new Object[capacity];
+        values = (V[]) new Object[capacity];
+        mask = capacity - 1;
+        threshold = Math.min((int) (capacity * loadFactor), capacity - 1);
     }
 
-    public V get(K key) {
-        int index = hash(key);
-        Node<K, V> current = table[index];
+    /**
+     * Spreads the hash code so that keys differing only in high bits still
+     * land in different slots. Safe for every hashCode, including Integer.MIN_VALUE.
+     */
+    private int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    // Slot holding the key, or -1 if absent.
+    private int indexOf(Object key) {
+        int i = hash(key);
+        K k;
+        while ((k = keys[i]) != null) {
+            if (k.equals(key)) return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
 
-        while (current != null) {
-            if (current.key.equals(key)) {
-                return current.value;
+    public void put(K key, V value) {
+        int i = hash(key);
+        K k;
+        while ((k = keys[i]) != null) {
+            if (k.equals(key)) {
+                values[i] = value;
+                return;
             }
-            current = current.next;
+            i = (i + 1) & mask;
+        }
+
+        keys[i] = key;
+        values[i] = value;
+        if (++size > threshold) {
+            resize(keys.length << 1);
         }
+    }
 
-        return null;
+    public V get(K key) {
+        int i = indexOf(key);
+        return i < 0 ? null : values[i];
     }
 
     public boolean containsKey(K key) {
-        return get(key) != null;
+        return indexOf(key) >= 0;
     }
 
     public V remove(K key) {
-        int index = hash(key);
-        Node<K, V> current = table[index];
-        Node<K, V> prev = null;
-
-        while (current != null) {
-            if (current.key.equals(key)) {
-                if (prev == null) {
-                    table[index] = current.next;
-                } else {
-                    prev.next = current.next;
-                }
-                size--;
-                return current.value;
+        int i = indexOf(key);
+        if (i < 0) return null;
+
+        V old = values[i];
+        deleteSlot(i);
+        size--;
+        return old;
+    }
+
+    /**
+     * Backward-shift deletion: pull later entries of the probe run into the
+     * gap when their home slot does not lie strictly between the gap and them.
+     */
+    private void deleteSlot(int gap) {
+        int i = gap;
+        while (true) {
+            i = (i + 1) & mask;
+            K k = keys[i];
+            if (k == null) break;
+
+            int home = hash(k);
+            // Move k if its home is cyclically outside (gap, i]
+            boolean movable = gap <= i ? (home <= gap || home > i) : (home <= gap && home > i);
+            if (movable) {
+                keys[gap] = k;
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        keys[gap] = null;
+        values[gap] = null;
+    }
+
+    private void resize(int newCapacity) {
+        if (newCapacity > MAXIMUM_CAPACITY) {
+            if (keys.length == MAXIMUM_CAPACITY && size < keys.length) return;
+            throw new IllegalStateException("HashMap capacity exceeded");
+        }
+
+        K[] oldKeys = keys;
+        V[] oldValues = values;
+        allocate(newCapacity);
+
+        for (int j = 0; j < oldKeys.length; j++) {
+            K k = oldKeys[j];
+            if (k == null) continue;
+            int i = hash(k);
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
             }
-            prev = current;
-            current = current.next;
+            keys[i] = k;
+            values[i] = oldValues[j];
         }
+    }
 
-        return null;
+    /**
+     * Grows the table up front so that the given number of entries fit
+     * without intermediate resizes.
+     */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = tableSizeFor(expectedSize);
+        if (capacity > keys.length) {
+            resize(capacity);
+        }
     }
 
     public int size() {
@@ -78,24 +181,27 @@ public class HashMap<K, V> {
     }
 
     public void clear() {
-        table = new Node[INITIAL_CAPACITY];
+        allocate(initialCapacity);
         size = 0;
     }
 
+    // Array.newInstance returns Object; the component type is the one the caller's array has
+    @SuppressWarnings("unchecked")
+    private static <T> T[] newArrayLike(T[] a, int length) {
+        return (T[]) java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), length);
+    }
+
     /**
      * Returns all keys in the map as a typed array
      */
     public K[] keySetArray(K[] a) {
         if (a.length < size) {
-            a = (K[]) java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), size);
+            a = newArrayLike(a, size);
         }
 
-        int i = 0;
-        for (Node<K, V> bucket : table) {
-            while (bucket != null) {
-                a[i++] = bucket.key;
-                bucket = bucket.next;
-            }
+        int n = 0;
+        for (K k : keys) {
+            if (k != null) a[n++] = k;
         }
         return a;
     }
@@ -105,30 +211,13 @@ public class HashMap<K, V> {
      */
     public V[] valuesArray(V[] a) {
         if (a.length < size) {
-            a = (V[]) java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), size);
+            a = newArrayLike(a, size);
         }
 
-        int i = 0;
-        for (Node<K, V> bucket : table) {
-            while (bucket != null) {
-                a[i++] = bucket.value;
-                bucket = bucket.next;
-            }
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) a[n++] = values[i];
         }
         return a;
     }
-
-    /**
-     * Internal Node class
-     */
-    private static class Node<K, V> {
-        K key;
-        V value;
-        Node<K, V> next;
-
-        Node(K key, V value) {
-            this.key = key;
-            this.value = value;
-        }
-    }
 }
@@ -0,0 +1,35 @@
+package datastructures;
+
+/**
+ * Canonicalising pool: equal values passed to intern come back as one
+ * shared instance, so millions of records parsed from file hold a single
+ * copy of each ISBN or ID instead of one per record.
+ * Entries are never evicted; suited to bounded key spaces such as identifiers.
+ */
+public class InternPool<T> {
+    private HashMap<T, T> pool;
+
+    public InternPool() {
+        pool = new HashMap<>();
+    }
+
+    /**
+     * Returns the pooled instance equal to value, adding value if it is new.
+     * Time complexity: O(1) expected.
+     */
+    public synchronized T intern(T value) {
+        if (value == null) return null;
+        T existing = pool.get(value);
+        if (existing != null) return existing;
+        pool.put(value, value);
+        return value;
+    }
+
+    public synchronized int size() {
+        return pool.size();
+    }
+
+    public synchronized void clear() {
+        pool.clear();
+    }
+}
@@ -0,0 +1,189 @@
+package datastructures;
+
+import java.util.Arrays;
+
+/**
+ * Sorted set of non-negative int ids stored compressed: each id is written
+ * as the gap from the previous one in a variable-length byte encoding
+ * (7 bits per byte), so dense lists take about one byte per id.
+ * Appending an id larger than every existing one is O(1); other updates
+ * re-encode the list.
+ * Also holds the sorted int[] intersection and union used to evaluate queries.
+ */
+public class PostingList {
+    private byte[] data;
+    private int length; // bytes used
+    private int size;   // ids stored
+    private int last = -1;
+
+    public PostingList() {
+        data = new byte[8];
+    }
+
+    /**
+     * Adds the id if absent.
+     * Time complexity: O(1) when id is the largest so far, O(n) otherwise.
+     * @return true if the id was added.
+     */
+    public boolean add(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Posting ids must not be negative: " + id);
+        }
+        if (id == last) return false;
+        if (id > last) {
+            writeVarInt(id - last - 1);
+            last = id;
+            size++;
+            return true;
+        }
+
+        int[] ids = toArray();
+        int pos = Arrays.binarySearch(ids, id);
+        if (pos >= 0) return false;
+        int insert = -pos - 1;
+        int[] updated = new int[ids.length + 1];
+        System.arraycopy(ids, 0, updated, 0, insert);
+        updated[insert] = id;
+        System.arraycopy(ids, insert, updated, insert + 1, ids.length - insert);
+        encode(updated, updated.length);
+        return true;
+    }
+
+    /**
+     * Removes the id if present.
+     * Time complexity: O(n).
+     * @return true if the id was removed.
+     */
+    public boolean remove(int id) {
+        if (id < 0 || id > last) return false;
+        int[] ids = toArray();
+        int pos = Arrays.binarySearch(ids, id);
+        if (pos < 0) return false;
+        System.arraycopy(ids, pos + 1, ids, pos, ids.length - pos - 1);
+        encode(ids, ids.length - 1);
+        return true;
+    }
+
+    public boolean contains(int id) {
+        if (id < 0 || id > last) return false;
+        return Arrays.binarySearch(toArray(), id) >= 0;
+    }
+
+    /**
+     * Decodes the ids in ascending order.
+     */
+    public int[] toArray() {
+        int[] ids = new int[size];
+        int pos = 0, previous = -1;
+        for (int i = 0; i < size; i++) {
+            int gap = 0, shift = 0;
+            byte b;
+            do {
+                b = data[pos++];
+                gap |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            previous += gap + 1;
+            ids[i] = previous;
+        }
+        return ids;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Bytes used by the encoded ids.
+     */
+    public int byteSize() {
+        return length;
+    }
+
+    private void encode(int[] ids, int count) {
+        length = 0;
+        size = 0;
+        last = -1;
+        if (data.length > 8 && count * 2 < data.length) {
+            data = new byte[Math.max(8, count * 2)];
+        }
+        for (int i = 0; i < count; i++) {
+            writeVarInt(ids[i] - last - 1);
+            last = ids[i];
+            size++;
+        }
+    }
+
+    // Gaps are stored minus one, so consecutive ids cost a single zero byte
+    private void writeVarInt(int value) {
+        if (length + 5 > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+        }
+        while ((value & ~0x7F) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    /**
+     * Ids present in both sorted arrays. When the sizes are very uneven, each
+     * id of the smaller array is binary-searched in the rest of the larger one.
+     */
+    public static int[] intersect(int[] a, int[] b) {
+        if (a.length > b.length) {
+            int[] tmp = a;
+            a = b;
+            b = tmp;
+        }
+        int[] result = new int[a.length];
+        int n = 0;
+        if (a.length * 16 < b.length) {
+            int from = 0;
+            for (int id : a) {
+                int pos = Arrays.binarySearch(b, from, b.length, id);
+                if (pos >= 0) {
+                    result[n++] = id;
+                    from = pos + 1;
+                } else {
+                    from = -pos - 1;
+                }
+            }
+        } else {
+            int i = 0, j = 0;
+            while (i < a.length && j < b.length) {
+                if (a[i] < b[j]) i++;
+                else if (a[i] > b[j]) j++;
+                else {
+                    result[n++] = a[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+
+    /**
+     * Ids present in either sorted array, without duplicates.
+     */
+    public static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            int next;
+            if (j >= b.length || (i < a.length && a[i] < b[j])) next = a[i++];
+            else if (i >= a.length || b[j] < a[i]) next = b[j++];
+            else {
+                next = a[i++];
+                j++;
+            }
+            result[n++] = next;
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+}
@@ -1,77 +1,244 @@
 package datastructures;
 
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
 
+/**
+ * Indexed d-ary min-heap. Every inserted element gets a Handle that tracks
+ * its slot in the heap, so an element can be removed or re-ordered after
+ * its key changed in O(d log_d n) without searching for it.
+ * The default arity of 4 keeps a node's children in one or two cache lines
+ * and halves the tree height compared to a binary heap.
+ */
 public class PriorityQueue<T> {
-    private T[] heap;
+    private static final int DEFAULT_ARITY = 4;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Reference to an element inside the queue. Stays valid until the
+     * element is polled or removed.
+     */
+    public static final class Handle<T> {
+        private T value;
+        private int index;
+
+        private Handle(T value) {
+            this.value = value;
+        }
+
+        public T get() { return value; }
+    }
+
+    private Handle<T>[] heap;
     private int size;
+    private final int arity;
     private Comparator<T> comparator;
 
     public PriorityQueue(Comparator<T> comparator) {
+        this(comparator, DEFAULT_ARITY);
+    }
+
+    /**
+     * @param arity Number of children per node; 2 gives a classic binary heap.
+     */
+    public PriorityQueue(Comparator<T> comparator, int arity) {
+        if (arity < 2) {
+            throw new IllegalArgumentException("Heap arity must be at least 2: " + arity);
+        }
         this.comparator = comparator;
-        this.heap = (T[]) new Object[16];
+        this.arity = arity;
+        this.heap = newHeap(DEFAULT_CAPACITY);
         this.size = 0;
     }
 
-    public void offer(T value) {
-        if (size >= heap.length) resize();
-        heap[size] = value;
+    /**
+     * Builds a queue from the given elements in O(n); see heapify.
+     */
+    public PriorityQueue(Collection<? extends T> items, Comparator<T> comparator) {
+        this(comparator);
+        heapify(items);
+    }
+
+    /**
+     * Inserts an element.
+     * Time complexity: O(log_d n).
+     * @return the handle for later remove or changeKey calls.
+     */
+    public Handle<T> offer(T value) {
+        if (size >= heap.length) resize(heap.length * 2);
+        Handle<T> handle = new Handle<>(value);
+        place(handle, size);
         heapifyUp(size++);
+        return handle;
+    }
+
+    /**
+     * Replaces the contents with the given elements using Floyd's bottom-up
+     * construction: O(n) instead of the O(n log n) of repeated offers.
+     * @return the handles, in the iteration order of items.
+     */
+    public List<Handle<T>> heapify(Collection<? extends T> items) {
+        heap = newHeap(Math.max(DEFAULT_CAPACITY, items.size()));
+        size = 0;
+        List<Handle<T>> handles = new ArrayList<>(items.size());
+        for (T item : items) {
+            Handle<T> handle = new Handle<>(item);
+            place(handle, size++);
+            handles.add(handle);
+        }
+        for (int i = size > 1 ? parent(size - 1) : -1; i >= 0; i--) {
+            heapifyDown(i);
+        }
+        return handles;
+    }
+
+    public T peek() {
+        return isEmpty() ? null : heap[0].value;
     }
 
     public T poll() {
         if (isEmpty()) return null;
-        T root = heap[0];
-        heap[0] = heap[--size];
-        heap[size] = null;
-        heapifyDown(0);
-        return root;
+        Handle<T> root = heap[0];
+        removeAt(0);
+        return root.value;
+    }
+
+    /**
+     * Removes the element behind the handle.
+     * Time complexity: O(d log_d n).
+     * @return true if the element was still in the queue.
+     */
+    public boolean remove(Handle<T> handle) {
+        if (!contains(handle)) return false;
+        removeAt(handle.index);
+        return true;
+    }
+
+    /**
+     * Restores heap order after the element's key (whatever the comparator
+     * reads) was changed in place, in either direction.
+     */
+    public void changeKey(Handle<T> handle) {
+        if (!contains(handle)) {
+            throw new IllegalArgumentException("Handle is not in this queue");
+        }
+        sift(handle.index);
+    }
+
+    /**
+     * Replaces the element behind the handle and restores heap order.
+     */
+    public void changeKey(Handle<T> handle, T value) {
+        if (!contains(handle)) {
+            throw new IllegalArgumentException("Handle is not in this queue");
+        }
+        handle.value = value;
+        sift(handle.index);
+    }
+
+    public boolean contains(Handle<T> handle) {
+        return handle != null && handle.index >= 0 && handle.index < size && heap[handle.index] == handle;
     }
 
     public boolean isEmpty() {
         return size == 0;
     }
 
+    public int size() {
+        return size;
+    }
+
     public void clear() {
-        heap = (T[]) new Object[16];
+        for (int i = 0; i < size; i++) {
+            heap[i].index = -1;
+        }
+        heap = newHeap(DEFAULT_CAPACITY);
         size = 0;
     }
 
-    private void resize() {
-        T[] newHeap = (T[]) new Object[heap.length * 2];
-        System.arraycopy(heap, 0, newHeap, 0, heap.length);
-        heap = newHeap;
+    /**
+     * The elements in heap order (not sorted).
+     */
+    @SuppressWarnings("unchecked")
+    public T[] toArray(T[] a) {
+        T[] array = a.length >= size ? a : (T[]) Array.newInstance(a.getClass().getComponentType(), size);
+        for (int i = 0; i < size; i++) {
+            array[i] = heap[i].value;
+        }
+        if (array.length > size) array[size] = null;
+        return array;
+    }
+
+    private void removeAt(int index) {
+        Handle<T> removed = heap[index];
+        Handle<T> last = heap[--size];
+        heap[size] = null;
+        removed.index = -1;
+        if (index < size) {
+            place(last, index);
+            sift(index);
+        }
+    }
+
+    private void sift(int index) {
+        if (index > 0 && comparator.compare(heap[index].value, heap[parent(index)].value) < 0) {
+            heapifyUp(index);
+        } else {
+            heapifyDown(index);
+        }
+    }
+
+    private void resize(int capacity) {
+        Handle<T>[] larger = newHeap(capacity);
+        System.arraycopy(heap, 0, larger, 0, size);
+        heap = larger;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Handle<T>[] newHeap(int capacity) {
+        return (Handle<T>[]) new Handle<?>[capacity];
+    }
+
+    private int parent(int index) {
+        return (index - 1) / arity;
     }
 
+    // Hole-based sifting: the moving handle is written once at its final slot
     private void heapifyUp(int index) {
+        Handle<T> moving = heap[index];
         while (index > 0) {
-            int parent = (index - 1) / 2;
-            if (comparator.compare(heap[index], heap[parent]) >= 0) break;
-            swap(index, parent);
+            int parent = parent(index);
+            if (comparator.compare(moving.value, heap[parent].value) >= 0) break;
+            place(heap[parent], index);
             index = parent;
         }
+        place(moving, index);
     }
 
     private void heapifyDown(int index) {
-        while (index < size) {
-            int left = 2 * index + 1, right = 2 * index + 2, smallest = index;
-
-            if (left < size && comparator.compare(heap[left], heap[smallest]) < 0) {
-                smallest = left;
-            }
-            if (right < size && comparator.compare(heap[right], heap[smallest]) < 0) {
-                smallest = right;
+        Handle<T> moving = heap[index];
+        while (true) {
+            int first = arity * index + 1;
+            if (first >= size) break;
+            int last = Math.min(first + arity, size);
+            int smallest = first;
+            for (int child = first + 1; child < last; child++) {
+                if (comparator.compare(heap[child].value, heap[smallest].value) < 0) {
+                    smallest = child;
+                }
             }
-            if (smallest == index) break;
-
-            swap(index, smallest);
+            if (comparator.compare(heap[smallest].value, moving.value) >= 0) break;
+            place(heap[smallest], index);
             index = smallest;
         }
+        place(moving, index);
     }
 
-    private void swap(int i, int j) {
-        T tmp = heap[i];
-        heap[i] = heap[j];
-        heap[j] = tmp;
+    private void place(Handle<T> handle, int index) {
+        heap[index] = handle;
+        handle.index = index;
     }
 }
@@ -31,6 +31,10 @@ public class Queue<T> {
         return value;
     }
 
+    public T peek() {
+        return isEmpty() ? null : front.data;
+    }
+
     public boolean isEmpty() {
         return size == 0;
     }
@@ -0,0 +1,174 @@
+package datastructures;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts events per key over a sliding window of the most recent days.
+ * Counts are kept in one bucket per day of a ring; when the window slides,
+ * the buckets falling out of it are subtracted from the running totals.
+ * The top K keys are kept in a bounded min-heap as events arrive, so
+ * reading them costs O(K log K) rather than a pass over every key. An
+ * expiry can demote a top key, so the heap is rebuilt in one O(n log K)
+ * pass at most once per slide.
+ */
+public class SlidingWindowCounter<K> {
+    private final int windowDays;
+    private final int topK;
+    private HashMap<K, Integer>[] buckets;
+    private HashMap<K, Integer> totals;
+    // Newest day seen; the window covers (newestDay - windowDays, newestDay]
+    private long newestDay = Long.MIN_VALUE;
+
+    private PriorityQueue<K> top;
+    private HashMap<K, PriorityQueue.Handle<K>> topHandles;
+    private boolean topStale;
+
+    /**
+     * @param windowDays Length of the window in days.
+     * @param topK       Number of leading keys to maintain.
+     */
+    public SlidingWindowCounter(int windowDays, int topK) {
+        if (windowDays <= 0) {
+            throw new IllegalArgumentException("Window must be at least one day: " + windowDays);
+        }
+        if (topK <= 0) {
+            throw new IllegalArgumentException("Top K must be positive: " + topK);
+        }
+        this.windowDays = windowDays;
+        this.topK = topK;
+        this.buckets = newBucketArray(windowDays);
+        this.totals = new HashMap<>();
+        this.top = new PriorityQueue<>((a, b) -> Integer.compare(count(a), count(b)));
+        this.topHandles = new HashMap<>();
+    }
+
+    /**
+     * Records one event for the key on the given day (e.g. an epoch day).
+     * Events older than the window are ignored; newer ones slide it forward.
+     * Time complexity: O(log K) amortised.
+     */
+    public void add(K key, long day) {
+        advanceTo(day);
+        if (day <= newestDay - windowDays) return;
+
+        int slot = (int) Math.floorMod(day, (long) windowDays);
+        if (buckets[slot] == null) {
+            buckets[slot] = new HashMap<>();
+        }
+        increment(buckets[slot], key, 1);
+        increment(totals, key, 1);
+        offerTop(key);
+    }
+
+    /**
+     * Slides the window so that it ends on the given day, expiring older
+     * buckets. Days earlier than the current end are ignored.
+     */
+    public void advanceTo(long day) {
+        if (newestDay == Long.MIN_VALUE) {
+            newestDay = day;
+            return;
+        }
+        if (day <= newestDay) return;
+
+        long steps = Math.min(day - newestDay, windowDays);
+        for (long d = day - steps + 1; d <= day; d++) {
+            int slot = (int) Math.floorMod(d, (long) windowDays);
+            HashMap<K, Integer> expired = buckets[slot];
+            if (expired == null) continue;
+            for (K key : expired.keySetArray(newKeyArray())) {
+                increment(totals, key, -expired.get(key));
+            }
+            buckets[slot] = null;
+            topStale = true;
+        }
+        newestDay = day;
+    }
+
+    /**
+     * Number of events for the key inside the window.
+     */
+    public int count(K key) {
+        Integer count = totals.get(key);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * The keys with the most events in the window ending on the given day,
+     * most frequent first.
+     */
+    public Map<K, Integer> top(long day) {
+        advanceTo(day);
+        if (topStale) {
+            rebuildTop();
+        }
+
+        K[] leaders = top.toArray(newKeyArray());
+        Arrays.sort(leaders, (a, b) -> Integer.compare(count(b), count(a)));
+        Map<K, Integer> result = new LinkedHashMap<>();
+        for (K key : leaders) {
+            result.put(key, count(key));
+        }
+        return result;
+    }
+
+    public int getWindowDays() {
+        return windowDays;
+    }
+
+    public void clear() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = null;
+        }
+        totals.clear();
+        top.clear();
+        topHandles.clear();
+        topStale = false;
+        newestDay = Long.MIN_VALUE;
+    }
+
+    // Called after the key's count went up
+    private void offerTop(K key) {
+        if (topStale) return; // rebuilt on the next read
+        PriorityQueue.Handle<K> handle = topHandles.get(key);
+        if (handle != null) {
+            top.changeKey(handle);
+        } else if (top.size() < topK) {
+            topHandles.put(key, top.offer(key));
+        } else if (count(key) > count(top.peek())) {
+            topHandles.remove(top.poll());
+            topHandles.put(key, top.offer(key));
+        }
+    }
+
+    private void rebuildTop() {
+        top.clear();
+        topHandles.clear();
+        topStale = false;
+        for (K key : totals.keySetArray(newKeyArray())) {
+            offerTop(key);
+        }
+    }
+
+    private void increment(HashMap<K, Integer> counts, K key, int by) {
+        Integer current = counts.get(key);
+        int updated = (current == null ? 0 : current) + by;
+        if (updated == 0) {
+            counts.remove(key);
+        } else {
+            counts.put(key, updated);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> HashMap<K, Integer>[] newBucketArray(int length) {
+        return (HashMap<K, Integer>[]) new HashMap<?, ?>[length];
+    }
+
+    @SuppressWarnings("unchecked")
+    private K[] newKeyArray() {
+        return (K[]) new Object[0];
+    }
+}
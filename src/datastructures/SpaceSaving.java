@@ -0,0 +1,182 @@
+package datastructures;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving heavy-hitters summary. At most capacity keys are monitored;
+ * an unmonitored key evicts the key with the smallest count and inherits
+ * that count as its possible overestimate. Every key whose true count
+ * exceeds total / capacity is guaranteed to be monitored, and each
+ * monitored count overestimates by at most its recorded error.
+ * Summaries can be merged, e.g. to combine per-day or per-branch summaries.
+ */
+public class SpaceSaving<K> {
+
+    private static final class Counter<K> {
+        K key;
+        long count;
+        long error;
+
+        Counter(K key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    private final int capacity;
+    private PriorityQueue<Counter<K>> counters; // min-heap by count
+    private HashMap<K, PriorityQueue.Handle<Counter<K>>> handles;
+    private long totalCount;
+
+    /**
+     * @param epsilon Largest overestimate, as a fraction of the total count, in (0, 1).
+     */
+    public SpaceSaving(double epsilon) {
+        this(capacityFor(epsilon));
+    }
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.counters = new PriorityQueue<>((a, b) -> Long.compare(a.count, b.count));
+        this.handles = new HashMap<>();
+    }
+
+    private static int capacityFor(double epsilon) {
+        if (!(epsilon > 0 && epsilon < 1)) {
+            throw new IllegalArgumentException("Epsilon must be in (0, 1): " + epsilon);
+        }
+        return (int) Math.ceil(1 / epsilon);
+    }
+
+    /**
+     * Adds count occurrences of the key.
+     * Time complexity: O(log m) for m monitored keys.
+     */
+    public void add(K key, long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count must not be negative: " + count);
+        }
+        totalCount += count;
+        PriorityQueue.Handle<Counter<K>> handle = handles.get(key);
+        if (handle != null) {
+            handle.get().count += count;
+            counters.changeKey(handle);
+        } else if (counters.size() < capacity) {
+            handles.put(key, counters.offer(new Counter<>(key, count, 0)));
+        } else {
+            // Replace the smallest counter; its count bounds the new key's error
+            Counter<K> min = counters.peek();
+            handle = handles.remove(min.key);
+            min.key = key;
+            min.error = min.count;
+            min.count += count;
+            counters.changeKey(handle);
+            handles.put(key, handle);
+        }
+    }
+
+    /**
+     * Upper bound on the key's count: its counter if monitored, otherwise
+     * the smallest monitored count (0 while the summary is not full).
+     */
+    public long estimate(K key) {
+        PriorityQueue.Handle<Counter<K>> handle = handles.get(key);
+        if (handle != null) return handle.get().count;
+        return minCount();
+    }
+
+    /**
+     * Largest possible overestimate of estimate(key).
+     */
+    public long error(K key) {
+        PriorityQueue.Handle<Counter<K>> handle = handles.get(key);
+        return handle != null ? handle.get().error : minCount();
+    }
+
+    private long minCount() {
+        return counters.size() < capacity || counters.isEmpty() ? 0 : counters.peek().count;
+    }
+
+    /**
+     * The k keys with the highest estimated counts, highest first.
+     * Time complexity: O(m log m).
+     */
+    public Map<K, Long> top(int k) {
+        List<Counter<K>> sorted = sortedCounters();
+        Map<K, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < Math.min(k, sorted.size()); i++) {
+            result.put(sorted.get(i).key, sorted.get(i).count);
+        }
+        return result;
+    }
+
+    /**
+     * Combines another summary into this one. A key missing from a full
+     * summary is charged that summary's smallest count, as count and error;
+     * the capacity largest merged counters are kept.
+     */
+    public void merge(SpaceSaving<K> other) {
+        long thisMin = minCount();
+        long otherMin = other.minCount();
+
+        HashMap<K, Counter<K>> merged = new HashMap<>(counters.size() + other.counters.size());
+        for (Counter<K> c : counters.toArray(noCounters())) {
+            merged.put(c.key, new Counter<>(c.key, c.count + otherMin, c.error + otherMin));
+        }
+        for (Counter<K> c : other.counters.toArray(noCounters())) {
+            Counter<K> existing = merged.get(c.key);
+            if (existing != null) {
+                // Undo the missing-key charge: the key is monitored on both sides
+                existing.count += c.count - otherMin;
+                existing.error += c.error - otherMin;
+            } else {
+                merged.put(c.key, new Counter<>(c.key, c.count + thisMin, c.error + thisMin));
+            }
+        }
+
+        List<Counter<K>> all = new ArrayList<>();
+        for (Counter<K> c : merged.valuesArray(noCounters())) {
+            all.add(c);
+        }
+        all.sort((a, b) -> Long.compare(b.count, a.count));
+        List<Counter<K>> kept = all.subList(0, Math.min(capacity, all.size()));
+
+        handles = new HashMap<>(kept.size());
+        for (PriorityQueue.Handle<Counter<K>> handle : counters.heapify(kept)) {
+            handles.put(handle.get().key, handle);
+        }
+        totalCount += other.totalCount;
+    }
+
+    private List<Counter<K>> sortedCounters() {
+        List<Counter<K>> sorted = new ArrayList<>();
+        for (Counter<K> c : counters.toArray(noCounters())) {
+            sorted.add(c);
+        }
+        sorted.sort((a, b) -> Long.compare(b.count, a.count));
+        return sorted;
+    }
+
+    // Zero-length array for toArray and valuesArray to size and type the copy from
+    @SuppressWarnings("unchecked")
+    private static <K> Counter<K>[] noCounters() {
+        return (Counter<K>[]) new Counter<?>[0];
+    }
+
+    public long getTotalCount() { return totalCount; }
+    public int getCapacity() { return capacity; }
+    public int size() { return counters.size(); }
+
+    public void clear() {
+        counters.clear();
+        handles.clear();
+        totalCount = 0;
+    }
+}
@@ -4,20 +4,24 @@ import java.util.*;
 
 public class TreeMap<K extends Comparable<K>, V> implements Iterable<Map.Entry<K, V>> {
 
+    // Not handed out as a Map.Entry: remove() moves a successor's key and value into the removed node
     private class Node {
         K key;
         V value;
         Node left, right;
         boolean red;
+        int size; // number of nodes in this subtree
 
         Node(K key, V value) {
             this.key = key;
             this.value = value;
             this.red = true;
+            this.size = 1;
         }
     }
 
     private Node root;
+    private int modCount; // structural changes, for fail-fast iterators
 
     public TreeMap() {}
 
@@ -27,18 +31,17 @@ public class TreeMap<K extends Comparable<K>, V> implements Iterable<Map.Entry<K
     }
 
     private Node insert(Node h, K key, V value) {
-        if (h == null) return new Node(key, value);
+        if (h == null) {
+            modCount++;
+            return new Node(key, value);
+        }
 
         int cmp = key.compareTo(h.key);
         if (cmp < 0) h.left = insert(h.left, key, value);
         else if (cmp > 0) h.right = insert(h.right, key, value);
         else h.value = value;
 
-        if (isRed(h.right) && !isRed(h.left)) h = rotateLeft(h);
-        if (isRed(h.left) && isRed(h.left.left)) h = rotateRight(h);
-        if (isRed(h.left) && isRed(h.right)) flipColors(h);
-
-        return h;
+        return balance(h);
     }
 
     public V get(K key) {
@@ -62,80 +65,538 @@ public class TreeMap<K extends Comparable<K>, V> implements Iterable<Map.Entry<K
         }
     }
 
+    /**
+     * Live view of the values in key order; iterates lazily without copying.
+     */
     public Collection<V> values() {
-        List<V> result = new ArrayList<>();
-        for (Map.Entry<K, V> entry : this) {
-            result.add(entry.getValue());
-        }
-        return result;
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return valueIterator(new NodeIterator(null, false, null, false, false));
+            }
+
+            @Override
+            public int size() {
+                return TreeMap.this.size();
+            }
+        };
     }
 
+    /**
+     * Time complexity: O(1), read from the root's subtree count.
+     */
     public int size() {
         return size(root);
     }
 
     private int size(Node x) {
-        if (x == null) return 0;
-        return 1 + size(x.left) + size(x.right);
+        return x == null ? 0 : x.size;
     }
 
     public boolean isEmpty() {
-        return size() == 0;
+        return root == null;
     }
 
+    /**
+     * Returns the number of keys strictly less than the given key.
+     * Time complexity: O(log n).
+     */
+    public int rank(K key) {
+        int rank = 0;
+        Node x = root;
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp < 0) {
+                x = x.left;
+            } else if (cmp > 0) {
+                rank += 1 + size(x.left);
+                x = x.right;
+            } else {
+                return rank + size(x.left);
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Returns the key with the given rank (0-based, in ascending order).
+     * Time complexity: O(log n).
+     * @throws IllegalArgumentException if the rank is outside [0, size()).
+     */
+    public K select(int rank) {
+        if (rank < 0 || rank >= size()) {
+            throw new IllegalArgumentException("Rank out of range: " + rank);
+        }
+        Node x = root;
+        while (x != null) {
+            int leftSize = size(x.left);
+            if (rank < leftSize) {
+                x = x.left;
+            } else if (rank > leftSize) {
+                rank -= leftSize + 1;
+                x = x.right;
+            } else {
+                return x.key;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Counts the keys between lo and hi, both inclusive.
+     * Time complexity: O(log n).
+     */
+    public int countInRange(K lo, K hi) {
+        if (lo.compareTo(hi) > 0) return 0;
+        int count = rank(hi) - rank(lo);
+        return containsKey(hi) ? count + 1 : count;
+    }
+
+    /**
+     * Left-leaning red-black deletion in a single descent; the tree stays
+     * balanced under any mix of puts and removes.
+     * Time complexity: O(log n).
+     */
     public V remove(K key) {
-        if (!containsKey(key)) return null;
-        V[] removed = (V[]) new Object[1];
+        if (root == null) return null;
+        if (!isRed(root.left) && !isRed(root.right)) root.red = true;
+
+        @SuppressWarnings("unchecked")
+        V[] removed = (V[]) new Object[1]; // out-parameter for the recursive remove
         root = remove(root, key, removed);
         if (root != null) root.red = false;
         return removed[0];
     }
 
     private Node remove(Node h, K key, V[] removed) {
-        if (h == null) return null;
-
-        int cmp = key.compareTo(h.key);
-        if (cmp < 0) {
+        if (key.compareTo(h.key) < 0) {
+            if (h.left == null) return balance(h); // key not present
+            if (!isRed(h.left) && !isRed(h.left.left)) h = moveRedLeft(h);
             h.left = remove(h.left, key, removed);
-        } else if (cmp > 0) {
-            h.right = remove(h.right, key, removed);
         } else {
-            removed[0] = h.value;
-            if (h.left == null) return h.right;
-            if (h.right == null) return h.left;
+            if (isRed(h.left)) h = rotateRight(h);
+            int cmp = key.compareTo(h.key);
+            if (cmp == 0 && h.right == null) {
+                removed[0] = h.value;
+                modCount++;
+                return null;
+            }
+            if (h.right == null) return balance(h); // key not present
+            if (!isRed(h.right) && !isRed(h.right.left)) h = moveRedRight(h);
+            if (key.compareTo(h.key) == 0) {
+                removed[0] = h.value;
+                modCount++;
+                Node min = findMin(h.right);
+                h.key = min.key;
+                h.value = min.value;
+                h.right = deleteMin(h.right);
+            } else {
+                h.right = remove(h.right, key, removed);
+            }
+        }
+        return balance(h);
+    }
+
+    private Node findMin(Node x) {
+        while (x.left != null) x = x.left;
+        return x;
+    }
+
+    private Node deleteMin(Node h) {
+        if (h.left == null) return null;
+        if (!isRed(h.left) && !isRed(h.left.left)) h = moveRedLeft(h);
+        h.left = deleteMin(h.left);
+        return balance(h);
+    }
+
+    /**
+     * Replaces the contents with the given entries, which must be in strictly
+     * ascending key order. Builds the tree directly as a perfectly balanced
+     * 2-3 tree instead of doing n rotating inserts.
+     * Time complexity: O(n).
+     * @throws IllegalArgumentException if the lists differ in length or keys are not strictly ascending.
+     */
+    public void bulkLoad(List<K> keys, List<V> values) {
+        if (keys.size() != values.size()) {
+            throw new IllegalArgumentException("Keys and values differ in length");
+        }
+        for (int i = 1; i < keys.size(); i++) {
+            if (keys.get(i - 1).compareTo(keys.get(i)) >= 0) {
+                throw new IllegalArgumentException("Keys must be strictly ascending at index " + i);
+            }
+        }
+
+        int n = keys.size();
+        // Number of 2-3 levels: 2^levels - 1 <= n < 2^(levels+1) - 1
+        int levels = 31 - Integer.numberOfLeadingZeros(n + 1);
+        root = build(keys, values, 0, n, levels);
+        if (root != null) root.red = false;
+        modCount++;
+    }
 
-            Node min = findMin(h.right);
-            h.key = min.key;
-            h.value = min.value;
-            h.right = deleteMin(h.right);
+    /**
+     * Builds keys [from, from + n) as a 2-3 subtree of exactly the given number
+     * of levels, so every root-to-leaf path has the same black height. A 3-node
+     * is a black node with a red left child.
+     */
+    private Node build(List<K> keys, List<V> values, int from, int n, int levels) {
+        if (n == 0) return null;
+
+        int childMax = pow3(levels - 1) - 1;
+        if (n - 1 <= 2 * childMax) {
+            int leftCount = (n - 1) / 2;
+            Node h = new Node(keys.get(from + leftCount), values.get(from + leftCount));
+            h.red = false;
+            h.left = build(keys, values, from, leftCount, levels - 1);
+            h.right = build(keys, values, from + leftCount + 1, n - 1 - leftCount, levels - 1);
+            h.size = n;
+            return h;
         }
 
+        int rest = n - 2;
+        int c1 = rest / 3, c2 = (rest - c1) / 2, c3 = rest - c1 - c2;
+        Node red = new Node(keys.get(from + c1), values.get(from + c1));
+        red.left = build(keys, values, from, c1, levels - 1);
+        red.right = build(keys, values, from + c1 + 1, c2, levels - 1);
+        red.size = 1 + c1 + c2;
+
+        int blackAt = from + c1 + 1 + c2;
+        Node h = new Node(keys.get(blackAt), values.get(blackAt));
+        h.red = false;
+        h.left = red;
+        h.right = build(keys, values, blackAt + 1, c3, levels - 1);
+        h.size = n;
         return h;
     }
 
-    private Node findMin(Node x) {
+    private static int pow3(int exp) {
+        long result = 1;
+        for (int i = 0; i < exp && result <= Integer.MAX_VALUE; i++) result *= 3;
+        return (int) Math.min(result, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Height of the tree in nodes (0 when empty). A left-leaning red-black tree
+     * of n keys stays within 2 log2(n + 1).
+     */
+    public int height() {
+        return height(root);
+    }
+
+    private int height(Node x) {
+        if (x == null) return 0;
+        return 1 + Math.max(height(x.left), height(x.right));
+    }
+
+    /**
+     * Verifies the red-black invariants: keys in order, subtree sizes correct,
+     * no red right links, no two reds in a row, and equal black height on
+     * every path. Intended for stress checks; O(n).
+     */
+    public boolean isBalanced() {
+        if (isRed(root)) return false;
+        return check(root, null, null) >= 0;
+    }
+
+    // Returns the black height of x, or -1 if any invariant is broken.
+    private int check(Node x, K min, K max) {
+        if (x == null) return 0;
+        if (min != null && x.key.compareTo(min) <= 0) return -1;
+        if (max != null && x.key.compareTo(max) >= 0) return -1;
+        if (x.size != 1 + size(x.left) + size(x.right)) return -1;
+        if (isRed(x.right)) return -1;
+        if (x.red && isRed(x.left)) return -1;
+
+        int left = check(x.left, min, x.key);
+        int right = check(x.right, x.key, max);
+        if (left < 0 || right < 0 || left != right) return -1;
+        return x.red ? left : left + 1;
+    }
+
+    public K firstKey() {
+        if (root == null) return null;
+        Node x = root;
         while (x.left != null) x = x.left;
-        return x;
+        return x.key;
     }
 
-    private Node deleteMin(Node x) {
-        if (x.left == null) return x.right;
-        x.left = deleteMin(x.left);
-        return x;
+    public K lastKey() {
+        if (root == null) return null;
+        Node x = root;
+        while (x.right != null) x = x.right;
+        return x.key;
+    }
+
+    /**
+     * Smallest key greater than or equal to the given key, or null.
+     */
+    public K ceilingKey(K key) {
+        return keyOf(ceiling(key, true));
+    }
+
+    /**
+     * Smallest key strictly greater than the given key, or null.
+     */
+    public K higherKey(K key) {
+        return keyOf(ceiling(key, false));
+    }
+
+    /**
+     * Largest key less than or equal to the given key, or null.
+     */
+    public K floorKey(K key) {
+        return keyOf(floor(key, true));
+    }
+
+    /**
+     * Largest key strictly less than the given key, or null.
+     */
+    public K lowerKey(K key) {
+        return keyOf(floor(key, false));
+    }
+
+    private K keyOf(Node x) {
+        return x == null ? null : x.key;
+    }
+
+    private Node ceiling(K key, boolean inclusive) {
+        Node x = root, best = null;
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp < 0 || (cmp == 0 && inclusive)) {
+                best = x;
+                if (cmp == 0) break;
+                x = x.left;
+            } else {
+                x = x.right;
+            }
+        }
+        return best;
+    }
+
+    private Node floor(K key, boolean inclusive) {
+        Node x = root, best = null;
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp > 0 || (cmp == 0 && inclusive)) {
+                best = x;
+                if (cmp == 0) break;
+                x = x.right;
+            } else {
+                x = x.left;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Live view of keys in [fromKey, toKey).
+     */
+    public View subMap(K fromKey, K toKey) {
+        return new View(fromKey, true, toKey, false);
     }
 
+    public View subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+        return new View(fromKey, fromInclusive, toKey, toInclusive);
+    }
+
+    /**
+     * Live view of keys strictly less than toKey.
+     */
+    public View headMap(K toKey) {
+        return new View(null, false, toKey, false);
+    }
+
+    public View headMap(K toKey, boolean inclusive) {
+        return new View(null, false, toKey, inclusive);
+    }
+
+    /**
+     * Live view of keys greater than or equal to fromKey.
+     */
+    public View tailMap(K fromKey) {
+        return new View(fromKey, true, null, false);
+    }
+
+    public View tailMap(K fromKey, boolean inclusive) {
+        return new View(fromKey, inclusive, null, false);
+    }
+
+    /**
+     * Lazy in-order iteration; the stack holds O(log n) nodes. Each entry is
+     * an immutable snapshot of a key and its value at the time it was
+     * returned. values() reads the nodes directly and allocates nothing.
+     * Time complexity: O(log n) to start, amortised O(1) per entry.
+     */
     @Override
     public Iterator<Map.Entry<K, V>> iterator() {
-        List<Map.Entry<K, V>> entries = new ArrayList<>();
-        inorder(root, entries);
-        return entries.iterator();
+        return entryIterator(new NodeIterator(null, false, null, false, false));
+    }
+
+    public Iterator<Map.Entry<K, V>> descendingIterator() {
+        return entryIterator(new NodeIterator(null, false, null, false, true));
+    }
+
+    // Entries are immutable snapshots, so one kept by a caller never changes under a later remove()
+    private Iterator<Map.Entry<K, V>> entryIterator(NodeIterator nodes) {
+        return new Iterator<Map.Entry<K, V>>() {
+            @Override
+            public boolean hasNext() {
+                return nodes.hasNext();
+            }
+
+            @Override
+            public Map.Entry<K, V> next() {
+                Node x = nodes.next();
+                return new AbstractMap.SimpleImmutableEntry<>(x.key, x.value);
+            }
+        };
+    }
+
+    private Iterator<V> valueIterator(NodeIterator nodes) {
+        return new Iterator<V>() {
+            @Override
+            public boolean hasNext() {
+                return nodes.hasNext();
+            }
+
+            @Override
+            public V next() {
+                return nodes.next().value;
+            }
+        };
+    }
+
+    /**
+     * Number of keys below the bound (or at it, when inclusive).
+     */
+    private int countBelow(K key, boolean inclusive) {
+        int count = rank(key);
+        return inclusive && containsKey(key) ? count + 1 : count;
+    }
+
+    /**
+     * A bounded, live window onto this map. A null bound means unbounded.
+     * Changes to the map are visible through the view.
+     */
+    public class View implements Iterable<Map.Entry<K, V>> {
+        private final K lo, hi;
+        private final boolean loInclusive, hiInclusive;
+
+        private View(K lo, boolean loInclusive, K hi, boolean hiInclusive) {
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return entryIterator(new NodeIterator(lo, loInclusive, hi, hiInclusive, false));
+        }
+
+        public Iterator<Map.Entry<K, V>> descendingIterator() {
+            return entryIterator(new NodeIterator(lo, loInclusive, hi, hiInclusive, true));
+        }
+
+        public Iterable<V> values() {
+            return () -> valueIterator(new NodeIterator(lo, loInclusive, hi, hiInclusive, false));
+        }
+
+        /**
+         * Time complexity: O(log n), using the subtree counts.
+         */
+        public int size() {
+            int upper = hi == null ? TreeMap.this.size() : countBelow(hi, hiInclusive);
+            int lower = lo == null ? 0 : countBelow(lo, !loInclusive);
+            return Math.max(0, upper - lower);
+        }
+
+        public boolean isEmpty() {
+            return !new NodeIterator(lo, loInclusive, hi, hiInclusive, false).hasNext();
+        }
     }
 
-    private void inorder(Node x, List<Map.Entry<K, V>> entries) {
-        if (x == null) return;
-        inorder(x.left, entries);
-        entries.add(new AbstractMap.SimpleEntry<>(x.key, x.value));
-        inorder(x.right, entries);
+    /**
+     * Stack-based in-order iterator, optionally bounded and/or descending.
+     * It seeks straight to the first key inside the bounds and stops at the
+     * first key outside them.
+     */
+    private class NodeIterator implements Iterator<Node> {
+        private final ArrayDeque<Node> stack = new ArrayDeque<>();
+        private final K lo, hi;
+        private final boolean loInclusive, hiInclusive, descending;
+        private final int expectedModCount = modCount;
+        private Node next;
+
+        NodeIterator(K lo, boolean loInclusive, K hi, boolean hiInclusive, boolean descending) {
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.descending = descending;
+            pushSpine(root);
+            advance();
+        }
+
+        private boolean tooLow(K key) {
+            if (lo == null) return false;
+            int cmp = key.compareTo(lo);
+            return cmp < 0 || (cmp == 0 && !loInclusive);
+        }
+
+        private boolean tooHigh(K key) {
+            if (hi == null) return false;
+            int cmp = key.compareTo(hi);
+            return cmp > 0 || (cmp == 0 && !hiInclusive);
+        }
+
+        // Push the path towards the first in-bound key, skipping subtrees that fall outside.
+        private void pushSpine(Node x) {
+            while (x != null) {
+                if (descending) {
+                    if (tooHigh(x.key)) {
+                        x = x.left;
+                    } else {
+                        stack.push(x);
+                        x = x.right;
+                    }
+                } else {
+                    if (tooLow(x.key)) {
+                        x = x.right;
+                    } else {
+                        stack.push(x);
+                        x = x.left;
+                    }
+                }
+            }
+        }
+
+        private void advance() {
+            next = null;
+            if (stack.isEmpty()) return;
+            Node x = stack.pop();
+            if (descending ? tooLow(x.key) : tooHigh(x.key)) {
+                stack.clear();
+                return;
+            }
+            pushSpine(descending ? x.left : x.right);
+            next = x;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Node next() {
+            if (next == null) throw new NoSuchElementException();
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            Node current = next;
+            advance();
+            return current;
+        }
     }
 
     private boolean isRed(Node x) {
@@ -148,6 +609,8 @@ public class TreeMap<K extends Comparable<K>, V> implements Iterable<Map.Entry<K
         x.left = h;
         x.red = h.red;
         h.red = true;
+        x.size = h.size;
+        h.size = 1 + size(h.left) + size(h.right);
         return x;
     }
 
@@ -157,12 +620,45 @@ public class TreeMap<K extends Comparable<K>, V> implements Iterable<Map.Entry<K
         x.right = h;
         x.red = h.red;
         h.red = true;
+        x.size = h.size;
+        h.size = 1 + size(h.left) + size(h.right);
         return x;
     }
 
     private void flipColors(Node h) {
-        h.red = true;
-        if (h.left != null) h.left.red = false;
-        if (h.right != null) h.right.red = false;
+        h.red = !h.red;
+        if (h.left != null) h.left.red = !h.left.red;
+        if (h.right != null) h.right.red = !h.right.red;
+    }
+
+    // Assuming h is red and both children black, make h.left or one of its children red.
+    private Node moveRedLeft(Node h) {
+        flipColors(h);
+        if (isRed(h.right.left)) {
+            h.right = rotateRight(h.right);
+            h = rotateLeft(h);
+            flipColors(h);
+        }
+        return h;
+    }
+
+    // Assuming h is red and both children black, make h.right or one of its children red.
+    private Node moveRedRight(Node h) {
+        flipColors(h);
+        if (isRed(h.left.left)) {
+            h = rotateRight(h);
+            flipColors(h);
+        }
+        return h;
+    }
+
+    // Restore the left-leaning invariants on the way back up.
+    private Node balance(Node h) {
+        if (isRed(h.right) && !isRed(h.left)) h = rotateLeft(h);
+        if (isRed(h.left) && isRed(h.left.left)) h = rotateRight(h);
+        if (isRed(h.left) && isRed(h.right)) flipColors(h);
+
+        h.size = 1 + size(h.left) + size(h.right);
+        return h;
     }
 }
@@ -0,0 +1,184 @@
+package functionality;
+
+import model.Transaction;
+import java.util.Map;
+import datastructures.CountMinSketch;
+import datastructures.SpaceSaving;
+
+/**
+ * Approximate borrowing activity over a sliding window of days, in memory
+ * that depends on the error bounds rather than on the number of books or
+ * borrowers. Each day of the window has its own Space-Saving summaries
+ * (top books, most active borrowers) and Count-Min sketches (per-key
+ * estimates); a query merges the days inside the window.
+ * Instances built with the same window and error bounds can be merged, so
+ * per-branch activity can be combined into a consortium-wide view.
+ */
+public class ApproximateActivity {
+
+    private static final class DaySummary {
+        final long day;
+        final SpaceSaving<String> books;
+        final SpaceSaving<String> borrowers;
+        final CountMinSketch bookCounts;
+        final CountMinSketch borrowerCounts;
+
+        DaySummary(long day, double epsilon, double delta) {
+            this.day = day;
+            this.books = new SpaceSaving<>(epsilon);
+            this.borrowers = new SpaceSaving<>(epsilon);
+            this.bookCounts = new CountMinSketch(epsilon, delta);
+            this.borrowerCounts = new CountMinSketch(epsilon, delta);
+        }
+
+        void merge(DaySummary other) {
+            books.merge(other.books);
+            borrowers.merge(other.borrowers);
+            bookCounts.merge(other.bookCounts);
+            borrowerCounts.merge(other.borrowerCounts);
+        }
+    }
+
+    private final int windowDays;
+    private final double epsilon;
+    private final double delta;
+    // Ring of per-day summaries; a slot holding a day outside the window is stale
+    private DaySummary[] days;
+    private long newestDay = Long.MIN_VALUE;
+    // Last merged window, reused until the next change
+    private DaySummary cachedWindow;
+
+    /**
+     * @param windowDays Length of the window in days.
+     * @param epsilon    Largest overestimate, as a fraction of the loans in the window.
+     * @param delta      Probability that a per-key sketch estimate exceeds that bound.
+     */
+    public ApproximateActivity(int windowDays, double epsilon, double delta) {
+        if (windowDays <= 0) {
+            throw new IllegalArgumentException("Window must be at least one day: " + windowDays);
+        }
+        if (!(epsilon > 0 && epsilon < 1) || !(delta > 0 && delta < 1)) {
+            throw new IllegalArgumentException("Error bounds must be in (0, 1): " + epsilon + ", " + delta);
+        }
+        this.windowDays = windowDays;
+        this.epsilon = epsilon;
+        this.delta = delta;
+        this.days = new DaySummary[windowDays];
+    }
+
+    /**
+     * Counts one loan on its borrow day. Loans older than the window are ignored.
+     * Time complexity: O(log m + depth) for m = 1/epsilon.
+     */
+    public void record(Transaction t) {
+        DaySummary summary = summaryFor(t.getBorrowEpochDay());
+        if (summary == null) return;
+        cachedWindow = null;
+        summary.books.add(t.getBookIsbn(), 1);
+        summary.borrowers.add(t.getBorrowerId(), 1);
+        summary.bookCounts.add(t.getBookIsbn(), 1);
+        summary.borrowerCounts.add(t.getBorrowerId(), 1);
+    }
+
+    // The summary for the day, created or recycled as needed; null if the day is too old
+    private DaySummary summaryFor(long day) {
+        newestDay = Math.max(newestDay, day);
+        if (day <= newestDay - windowDays) return null;
+
+        int slot = (int) Math.floorMod(day, (long) windowDays);
+        if (days[slot] == null || days[slot].day != day) {
+            days[slot] = new DaySummary(day, epsilon, delta);
+        }
+        return days[slot];
+    }
+
+    // Merges every day inside the window ending on the given day
+    private DaySummary window(long today) {
+        if (cachedWindow != null && cachedWindow.day == today) {
+            return cachedWindow;
+        }
+        DaySummary merged = new DaySummary(today, epsilon, delta);
+        for (DaySummary summary : days) {
+            if (summary != null && summary.day > today - windowDays && summary.day <= today) {
+                merged.merge(summary);
+            }
+        }
+        cachedWindow = merged;
+        return merged;
+    }
+
+    /**
+     * Approximately the k most borrowed books in the window ending today,
+     * most borrowed first. Counts may overestimate by up to getErrorBound.
+     */
+    public Map<String, Long> topBooks(long today, int k) {
+        return window(today).books.top(k);
+    }
+
+    /**
+     * Approximately the k borrowers with the most loans in the window.
+     */
+    public Map<String, Long> topBorrowers(long today, int k) {
+        return window(today).borrowers.top(k);
+    }
+
+    /**
+     * Upper-bound estimate of the book's loans in the window.
+     */
+    public long estimateBookLoans(String isbn, long today) {
+        return window(today).bookCounts.estimate(isbn);
+    }
+
+    /**
+     * Upper-bound estimate of the borrower's loans in the window.
+     */
+    public long estimateBorrowerLoans(String borrowerId, long today) {
+        return window(today).borrowerCounts.estimate(borrowerId);
+    }
+
+    /**
+     * Largest overestimate of any reported count in the window ending today:
+     * epsilon times the loans in the window.
+     */
+    public long getErrorBound(long today) {
+        return (long) Math.ceil(epsilon * getLoanCount(today));
+    }
+
+    public long getLoanCount(long today) {
+        long total = 0;
+        for (DaySummary summary : days) {
+            if (summary != null && summary.day > today - windowDays && summary.day <= today) {
+                total += summary.books.getTotalCount();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Adds another instance's activity, day by day.
+     * @throws IllegalArgumentException if the window or error bounds differ.
+     */
+    public void merge(ApproximateActivity other) {
+        if (other.windowDays != windowDays || other.epsilon != epsilon || other.delta != delta) {
+            throw new IllegalArgumentException("Cannot merge activity with a different window or error bounds");
+        }
+        for (DaySummary summary : other.days) {
+            if (summary == null) continue;
+            DaySummary target = summaryFor(summary.day);
+            if (target != null) {
+                target.merge(summary);
+            }
+        }
+        cachedWindow = null;
+    }
+
+    public int getWindowDays() { return windowDays; }
+    public double getEpsilon() { return epsilon; }
+    public double getDelta() { return delta; }
+
+    public void clear() {
+        days = new DaySummary[windowDays];
+        newestDay = Long.MIN_VALUE;
+        cachedWindow = null;
+    }
+}
@@ -2,51 +2,123 @@ package functionality;
 
 import model.Book;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import datastructures.CompletionTrie;
+import datastructures.HashMap;
 import datastructures.TreeMap;
+import utils.CatalogIndex;
+import utils.SearchUtil;
+import utils.TextKeys;
 
 public class BookInventory {
     // Custom TreeMap for sorted order by category, with nested TreeMap for sorted ISBNs
     private TreeMap<String, TreeMap<String, Book>> booksByCategory;
+    // Secondary index ISBN (see Book.isbnKey) -> Book; the book's category locates its nested TreeMap
+    private HashMap<String, Book> booksByIsbn;
+    // Word -> books inverted index for catalogue searches
+    private CatalogIndex catalogIndex;
+    // Normalised titles and authors -> books, ranked by borrow count for type-ahead
+    private CompletionTrie<Book> completions;
+    // Lifetime borrows per ISBN key, as reported by the LendingTracker
+    private HashMap<String, Integer> borrowCounts;
 
     public BookInventory() {
         booksByCategory = new TreeMap<>();
+        booksByIsbn = new HashMap<>();
+        catalogIndex = new CatalogIndex();
+        completions = new CompletionTrie<>();
+        borrowCounts = new HashMap<>();
     }
 
     /**
      * Adds a book to the inventory, organized by category.
      * Time complexity: O(log n) due to TreeMap insertion.
+     * A book with the same ISBN (ignoring case) is replaced, and moved out
+     * of its old category if that changed.
      * @param book The book to add.
      */
     public void addBook(Book book) {
+        Book existing = booksByIsbn.get(Book.isbnKey(book.getIsbn()));
+        if (existing != null) {
+            removeFromCategory(existing);
+            removeCompletions(existing);
+        }
+
         TreeMap<String, Book> categoryBooks = booksByCategory.get(book.getCategory());
         if (categoryBooks == null) {
             categoryBooks = new TreeMap<>();
             booksByCategory.put(book.getCategory(), categoryBooks);
         }
         categoryBooks.put(book.getIsbn(), book);
+        booksByIsbn.put(Book.isbnKey(book.getIsbn()), book);
+        catalogIndex.add(book);
+        addCompletions(book);
     }
 
     /**
-     * Removes a book by ISBN across all categories.
-     * Time complexity: O(log n) per category check.
+     * Removes a book by ISBN.
+     * Time complexity: O(1) index probe plus O(log n) removal from its category.
      * @param isbn The ISBN of the book to remove.
      * @return true if the book was removed, false if not found.
      */
     public boolean removeBook(String isbn) {
-        for (Map.Entry<String, TreeMap<String, Book>> entry : booksByCategory) {
-            TreeMap<String, Book> books = entry.getValue();
-            if (books.containsKey(isbn)) {
-                books.remove(isbn);
-                // Clean up empty categories
-                if (books.size() == 0) {
-                    booksByCategory.remove(entry.getKey());
-                }
-                return true;
-            }
+        Book book = booksByIsbn.remove(Book.isbnKey(isbn));
+        if (book == null) {
+            return false;
+        }
+        removeFromCategory(book);
+        catalogIndex.remove(isbn);
+        removeCompletions(book);
+        return true;
+    }
+
+    private void addCompletions(Book book) {
+        completions.insert(book.getNormalizedTitle(), book);
+        completions.insert(book.getNormalizedAuthor(), book);
+        Integer borrows = borrowCounts.get(Book.isbnKey(book.getIsbn()));
+        if (borrows != null) {
+            completions.setWeight(book, borrows);
+        }
+    }
+
+    private void removeCompletions(Book book) {
+        completions.remove(book.getNormalizedTitle(), book);
+        completions.remove(book.getNormalizedAuthor(), book);
+    }
+
+    /**
+     * Records how many times the book has been borrowed; autocomplete ranks by it.
+     * May be called before the book is added.
+     */
+    public void setBorrowCount(String isbn, int borrows) {
+        String key = Book.isbnKey(isbn);
+        borrowCounts.put(key, borrows);
+        Book book = booksByIsbn.get(key);
+        if (book != null) {
+            completions.setWeight(book, borrows);
+        }
+    }
+
+    /**
+     * Type-ahead: up to limit books whose title or author starts with the
+     * prefix, ignoring case and accents, most borrowed first.
+     * Time complexity: O(p + limit log limit) for a prefix of length p, for
+     * any catalogue size.
+     */
+    public List<Book> autocomplete(String prefix, int limit) {
+        return completions.complete(TextKeys.normalize(prefix.stripLeading()), limit);
+    }
+
+    private void removeFromCategory(Book book) {
+        TreeMap<String, Book> books = booksByCategory.get(book.getCategory());
+        if (books == null) return;
+        books.remove(book.getIsbn());
+        // Clean up empty categories
+        if (books.isEmpty()) {
+            booksByCategory.remove(book.getCategory());
         }
-        return false;
     }
 
     /**
@@ -59,6 +131,28 @@ public class BookInventory {
         return result != null ? result : new TreeMap<>();
     }
 
+    /**
+     * Returns one page of a category's books in ISBN order.
+     * Uses the TreeMap's rank/select, so page p costs O(pageSize * log n)
+     * rather than walking the first p * pageSize entries.
+     * @param category The category to page through.
+     * @param page Zero-based page number.
+     * @param pageSize Number of books per page.
+     * @return The books on that page, empty if past the end.
+     */
+    public List<Book> getBooksPage(String category, int page, int pageSize) {
+        List<Book> result = new ArrayList<>();
+        TreeMap<String, Book> books = booksByCategory.get(category);
+        if (books == null || page < 0 || pageSize <= 0) return result;
+
+        long start = (long) page * pageSize;
+        long end = Math.min(start + pageSize, books.size());
+        for (long i = start; i < end; i++) {
+            result.add(books.get(books.select((int) i)));
+        }
+        return result;
+    }
+
     /**
      * Lists all books in the inventory, grouped by category.
      * Each category and its books are shown in sorted order.
@@ -84,6 +178,7 @@ public class BookInventory {
 
     /**
      * Filters books by a category prefix.
+     * Seeks to the first category >= prefix and stops at the first one that no longer matches.
      * @param prefix The category prefix to match.
      * @return TreeMap of matching categories and their books.
      */
@@ -94,10 +189,11 @@ public class BookInventory {
             return result;
         }
 
-        for (Map.Entry<String, TreeMap<String, Book>> entry : booksByCategory) {
-            if (entry.getKey().startsWith(prefix)) {
-                result.putAll(entry.getValue());
+        for (Map.Entry<String, TreeMap<String, Book>> entry : booksByCategory.tailMap(prefix)) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
             }
+            result.putAll(entry.getValue());
         }
 
         return result;
@@ -112,11 +208,8 @@ public class BookInventory {
     public TreeMap<String, Book> getBooksInCategoryRange(String fromCategory, String toCategory) {
         TreeMap<String, Book> result = new TreeMap<>();
 
-        for (Map.Entry<String, TreeMap<String, Book>> entry : booksByCategory) {
-            String category = entry.getKey();
-            if (category.compareTo(fromCategory) >= 0 && category.compareTo(toCategory) <= 0) {
-                result.putAll(entry.getValue());
-            }
+        for (TreeMap<String, Book> categoryBooks : booksByCategory.subMap(fromCategory, true, toCategory, true).values()) {
+            result.putAll(categoryBooks);
         }
 
         return result;
@@ -124,19 +217,60 @@ public class BookInventory {
 
     /**
      * Returns the total number of books in inventory.
+     * Time complexity: O(1), the size of the ISBN index.
      */
     public int totalBookCount() {
-        int total = 0;
-        for (TreeMap<String, Book> categoryBooks : booksByCategory.values()) {
-            total += categoryBooks.size();
-        }
-        return total;
+        return booksByIsbn.size();
     }
 
+    /**
+     * Loads books into the inventory. Into an empty inventory the books are
+     * sorted once and every category tree is bulk-built perfectly balanced in
+     * O(n); otherwise each book is added individually.
+     * When an ISBN appears more than once the last occurrence wins, as with addBook.
+     */
     public void loadBooks(List<Book> books) {
+        if (!booksByCategory.isEmpty()) {
+            for (Book book : books) {
+                addBook(book);
+            }
+            return;
+        }
+
+        for (Book book : books) {
+            booksByIsbn.put(Book.isbnKey(book.getIsbn()), book);
+        }
+        List<Book> sorted = new ArrayList<>();
         for (Book book : books) {
-            addBook(book);
+            if (booksByIsbn.get(Book.isbnKey(book.getIsbn())) == book) {
+                sorted.add(book);
+            }
+        }
+        sorted.sort(Comparator.comparing(Book::getCategory).thenComparing(Book::getIsbn));
+
+        List<String> categories = new ArrayList<>();
+        List<TreeMap<String, Book>> categoryTrees = new ArrayList<>();
+        int i = 0;
+        while (i < sorted.size()) {
+            String category = sorted.get(i).getCategory();
+            List<String> isbns = new ArrayList<>();
+            List<Book> categoryBooks = new ArrayList<>();
+            for (; i < sorted.size() && sorted.get(i).getCategory().equals(category); i++) {
+                Book book = sorted.get(i);
+                // The same Book object listed twice
+                if (!isbns.isEmpty() && isbns.get(isbns.size() - 1).equals(book.getIsbn())) continue;
+                isbns.add(book.getIsbn());
+                categoryBooks.add(book);
+                catalogIndex.add(book);
+                addCompletions(book);
+            }
+
+            TreeMap<String, Book> tree = new TreeMap<>();
+            tree.bulkLoad(isbns, categoryBooks);
+            categories.add(category);
+            categoryTrees.add(tree);
         }
+        booksByCategory.bulkLoad(categories, categoryTrees);
     }
 
     public List<Book> getAllBooks() {
@@ -147,12 +281,53 @@ public class BookInventory {
         return allBooks;
     }
 
+    /**
+     * Keyword search over title, author, category and publisher through the
+     * trigram index; see SearchUtil.keywordSearch(CatalogIndex, String).
+     */
+    public List<Book> keywordSearch(String keyword) {
+        return SearchUtil.keywordSearch(catalogIndex, keyword);
+    }
+
+    public List<Book> searchByAuthor(String author) {
+        return SearchUtil.searchByAuthor(catalogIndex, author);
+    }
+
+    /**
+     * Titles containing the fragment, via the trigram index.
+     */
+    public List<Book> searchByPartialTitle(String fragment) {
+        return SearchUtil.searchByPartialTitle(catalogIndex, fragment);
+    }
+
+    public List<Book> suggestByTitle(String fragment) {
+        return SearchUtil.suggestByTitle(catalogIndex, fragment);
+    }
+
+    /**
+     * The query with misspelt title or author words corrected, or null if it needs none.
+     */
+    public String didYouMean(String query) {
+        return SearchUtil.didYouMean(catalogIndex, query);
+    }
+
+    public List<Book> searchByPublisher(String publisher) {
+        return SearchUtil.searchByPublisher(catalogIndex, publisher);
+    }
+
+    public List<Book> searchByTitleAndAuthor(String title, String author) {
+        return SearchUtil.searchByTitleAndAuthor(catalogIndex, title, author);
+    }
+
+    public CatalogIndex getCatalogIndex() {
+        return catalogIndex;
+    }
+
+    /**
+     * Looks up a book by ISBN, ignoring case, through the secondary index.
+     * Time complexity: O(1) average.
+     */
     public Book findBook(String isbn) {
-        for (TreeMap<String, Book> categoryBooks : booksByCategory.values()) {
-            if (categoryBooks.containsKey(isbn)) {
-                return categoryBooks.get(isbn);
-            }
-        }
-        return null;
+        return booksByIsbn.get(Book.isbnKey(isbn));
     }
 }
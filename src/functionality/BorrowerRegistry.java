@@ -3,48 +3,71 @@ package functionality;
 import model.Borrower;
 import java.util.ArrayList;
 import java.util.List;
-import datastructures.HashMap;
+import java.util.function.Consumer;
 
-public class BorrowerRegistry {
-    private HashMap<String, Borrower> borrowers; // ID -> Borrower
+/**
+ * Registered borrowers by ID, with a fines leaderboard.
+ * HashBorrowerRegistry serves a single desk; ConcurrentBorrowerRegistry lets
+ * several desks in one JVM share the registry.
+ */
+public interface BorrowerRegistry {
 
-    public BorrowerRegistry() {
-        borrowers = new HashMap<>();
-    }
+    /**
+     * @throws IllegalArgumentException if the borrower is null or the ID is taken.
+     */
+    void addBorrower(Borrower borrower);
 
-    public void addBorrower(Borrower borrower) {
-        if (borrower == null) {
-            throw new IllegalArgumentException("Borrower cannot be null");
-        }
-        if (borrowers.containsKey(borrower.getIdNumber())) {
-            throw new IllegalArgumentException("Borrower with ID " + borrower.getIdNumber() + " already exists");
-        }
-        borrowers.put(borrower.getIdNumber(), borrower);
-    }
+    /**
+     * @return false if no borrower has that ID.
+     * @throws IllegalStateException if the borrower has books out or owes fines.
+     */
+    boolean removeBorrower(String idNumber);
+
+    Borrower findBorrower(String idNumber);
 
-    public boolean removeBorrower(String idNumber) {
+    /**
+     * Applies the update (e.g. a new loan or fine) to the borrower with this
+     * ID. ConcurrentBorrowerRegistry runs it atomically with removeBorrower,
+     * so the update never lands on a borrower that is being removed.
+     * @return false if no borrower has that ID; the update is not run.
+     */
+    default boolean updateBorrower(String idNumber, Consumer<Borrower> update) {
         Borrower borrower = findBorrower(idNumber);
         if (borrower == null) {
             return false;
         }
-        if (!borrower.getBorrowedBooks().isEmpty()) {
-            throw new IllegalStateException("Cannot remove borrower with borrowed books");
-        }
-        if (borrower.getFinesOwed() > 0) {
-            throw new IllegalStateException("Cannot remove borrower with outstanding fines");
-        }
-        borrowers.remove(idNumber);
+        update.accept(borrower);
         return true;
     }
 
-    public Borrower findBorrower(String idNumber) {
-        return borrowers.get(idNumber);
+    List<Borrower> getAllBorrowers();
+
+    int size();
+
+    void clear();
+
+    /**
+     * The k borrowers owing the most, highest first, from the fines leaderboard.
+     */
+    List<Borrower> getTopDebtors(int k);
+
+    String getDataStructureJustification();
+
+    /**
+     * Loads one borrower read from file; unlike addBorrower, a repeated ID replaces the earlier entry.
+     */
+    void loadBorrower(Borrower borrower);
+
+    default void loadBorrowers(List<Borrower> borrowerList) {
+        for (Borrower borrower : borrowerList) {
+            loadBorrower(borrower);
+        }
     }
 
-    public Borrower findBorrowerRecursive(String idNumber) {
+    default Borrower findBorrowerRecursive(String idNumber) {
         List<String> sortedIds = new ArrayList<>();
-        for (String id : borrowers.keySetArray(new String[0])) {
-            sortedIds.add(id);
+        for (Borrower b : getAllBorrowers()) {
+            sortedIds.add(b.getIdNumber());
         }
         sortedIds.sort(String::compareTo);
         return recursiveBinarySearch(idNumber, sortedIds, 0, sortedIds.size() - 1);
@@ -57,42 +80,11 @@ public class BorrowerRegistry {
         int comparison = targetId.compareTo(midId);
 
         if (comparison == 0) {
-            return borrowers.get(midId);
+            return findBorrower(midId);
         } else if (comparison < 0) {
             return recursiveBinarySearch(targetId, sortedIds, low, mid - 1);
         } else {
             return recursiveBinarySearch(targetId, sortedIds, mid + 1, high);
         }
     }
-
-    public List<Borrower> getAllBorrowers() {
-        List<Borrower> allBorrowers = new ArrayList<>();
-        for (Borrower b : borrowers.valuesArray(new Borrower[0])) {
-            allBorrowers.add(b);
-        }
-        return allBorrowers;
-    }
-
-    public int size() {
-        return borrowers.size();
-    }
-
-    public void clear() {
-        borrowers.clear();
-    }
-
-    public String getDataStructureJustification() {
-        return "HashMap provides O(1) average time complexity for insert, delete, and lookup operations, " +
-                "which are our most common operations. While TreeMap would provide O(log n) operations " +
-                "and maintain sorted order, we don't need constant sorting and can sort when needed " +
-                "(like for the recursive search implementation). HashMap is more memory efficient " +
-                "for our primary use cases.";
-    }
-
-    public void loadBorrowers(List<Borrower> borrowerList) {
-        for (Borrower borrower : borrowerList) {
-            borrowers.put(borrower.getIdNumber(), borrower);
-        }
-    }
 }
-
@@ -0,0 +1,135 @@
+package functionality;
+
+import model.Borrower;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import datastructures.ConcurrentHashMap;
+
+/**
+ * BorrowerRegistry for several circulation desks sharing one JVM.
+ * Backed by a lock-striped ConcurrentHashMap, so lookups take no lock and
+ * scale with reader threads, while registration and removal are atomic per ID.
+ * Registration, removal and updateBorrower each run under the lock of the
+ * ID's segment, so a loan or fine recorded through updateBorrower cannot
+ * slip in between removeBorrower's checks and the removal.
+ */
+public class ConcurrentBorrowerRegistry implements BorrowerRegistry {
+    private final ConcurrentHashMap<String, Borrower> borrowers; // ID -> Borrower
+    // Borrowers owing fines, ranked as Borrower.addFine is called
+    private final FinesLeaderboard leaderboard = new FinesLeaderboard();
+
+    public ConcurrentBorrowerRegistry() {
+        borrowers = new ConcurrentHashMap<>();
+    }
+
+    public ConcurrentBorrowerRegistry(int concurrencyLevel) {
+        borrowers = new ConcurrentHashMap<>(concurrencyLevel);
+    }
+
+    /**
+     * The duplicate check, insert and leaderboard registration happen as one
+     * computeIfAbsent, so two desks registering the same ID cannot both succeed.
+     */
+    @Override
+    public void addBorrower(Borrower borrower) {
+        if (borrower == null) {
+            throw new IllegalArgumentException("Borrower cannot be null");
+        }
+        Borrower registered = borrowers.computeIfAbsent(borrower.getIdNumber(), id -> {
+            leaderboard.track(borrower);
+            return borrower;
+        });
+        if (registered != borrower) {
+            throw new IllegalArgumentException("Borrower with ID " + borrower.getIdNumber() + " already exists");
+        }
+    }
+
+    /**
+     * The checks and the removal run as one computeIfPresent, under the same
+     * segment lock as updateBorrower.
+     */
+    @Override
+    public boolean removeBorrower(String idNumber) {
+        boolean[] removed = new boolean[1];
+        borrowers.computeIfPresent(idNumber, (id, borrower) -> {
+            if (borrower.hasBorrowedBooks()) {
+                throw new IllegalStateException("Cannot remove borrower with borrowed books");
+            }
+            if (borrower.getFinesOwed() > 0) {
+                throw new IllegalStateException("Cannot remove borrower with outstanding fines");
+            }
+            leaderboard.untrack(borrower);
+            removed[0] = true;
+            return null;
+        });
+        return removed[0];
+    }
+
+    @Override
+    public Borrower findBorrower(String idNumber) {
+        return borrowers.get(idNumber);
+    }
+
+    /**
+     * Runs the update under the segment lock of the ID; keep it short, since
+     * writers to other IDs of the segment wait for it.
+     */
+    @Override
+    public boolean updateBorrower(String idNumber, Consumer<Borrower> update) {
+        boolean[] found = new boolean[1];
+        borrowers.computeIfPresent(idNumber, (id, borrower) -> {
+            update.accept(borrower);
+            found[0] = true;
+            return borrower;
+        });
+        return found[0];
+    }
+
+    @Override
+    public List<Borrower> getAllBorrowers() {
+        List<Borrower> allBorrowers = new ArrayList<>();
+        for (Borrower b : borrowers.valuesArray(new Borrower[0])) {
+            allBorrowers.add(b);
+        }
+        return allBorrowers;
+    }
+
+    @Override
+    public int size() {
+        return borrowers.size();
+    }
+
+    @Override
+    public void clear() {
+        for (Borrower b : getAllBorrowers()) {
+            leaderboard.untrack(b);
+        }
+        borrowers.clear();
+        leaderboard.clear();
+    }
+
+    @Override
+    public List<Borrower> getTopDebtors(int k) {
+        return leaderboard.top(k);
+    }
+
+    @Override
+    public String getDataStructureJustification() {
+        return "A lock-striped ConcurrentHashMap keeps O(1) average lookups while letting several desks " +
+                "work at once: reads take no lock, and writes only lock the segment that owns the ID. " +
+                "computeIfAbsent makes the duplicate-ID check and insert a single atomic step, and " +
+                "computeIfPresent does the same for removal checks and per-borrower updates.";
+    }
+
+    @Override
+    public void loadBorrower(Borrower borrower) {
+        borrowers.compute(borrower.getIdNumber(), (id, previous) -> {
+            if (previous != null) {
+                leaderboard.untrack(previous);
+            }
+            leaderboard.track(borrower);
+            return borrower;
+        });
+    }
+}
@@ -0,0 +1,135 @@
+package functionality;
+
+import model.Transaction;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import datastructures.HashMap;
+
+/**
+ * Records, per open loan, the last date fines were accrued up to, so each
+ * accrual run only charges the days since the previous one. Running the fine
+ * job twice on the same day charges nothing the second time.
+ */
+public class FineLedger {
+    private static final String LEDGER_FILE = "data/fine-ledger.txt";
+
+    // Loan key (see loanKey) -> date fines have been charged up to
+    private HashMap<String, LocalDate> accruedUntil;
+
+    public FineLedger() {
+        accruedUntil = new HashMap<>();
+    }
+
+    // The loan id, unique even for two same-day loans of one book by one borrower.
+    // Loans recorded before loans had ids keep the ISBN|borrowerId|borrowDate key.
+    private static String loanKey(Transaction t) {
+        if (t.getLoanId() != 0) {
+            return "#" + t.getLoanId();
+        }
+        return t.getBookIsbn() + "|" + t.getBorrowerId() + "|" + t.getBorrowDate();
+    }
+
+    /**
+     * Returns the overdue days not yet charged for this loan up to today and
+     * records them as charged. Returns 0 if the loan is not overdue or was
+     * already charged up to today.
+     */
+    public long accrue(Transaction t, LocalDate today) {
+        LocalDate dueDate = t.getDueDate();
+        String key = loanKey(t);
+        LocalDate from = accruedUntil.get(key);
+        if (from == null || from.isBefore(dueDate)) {
+            from = dueDate;
+        }
+
+        long days = ChronoUnit.DAYS.between(from, today);
+        if (days <= 0) return 0;
+        accruedUntil.put(key, today);
+        return days;
+    }
+
+    /**
+     * Drops the entry of a loan that is no longer open.
+     */
+    public void close(Transaction t) {
+        accruedUntil.remove(loanKey(t));
+    }
+
+    /**
+     * Drops the entries of loans that are not open in the given history, e.g.
+     * a loan whose return was checkpointed after the ledger was last saved.
+     * Time complexity: O(n + e) for n transactions and e entries.
+     * @return the number of entries dropped.
+     */
+    public int retainOpen(List<Transaction> transactions) {
+        HashMap<String, Boolean> open = new HashMap<>(transactions.size());
+        for (Transaction t : transactions) {
+            if (t.getStatus().isOpen()) {
+                open.put(loanKey(t), Boolean.TRUE);
+            }
+        }
+        int dropped = 0;
+        for (String key : accruedUntil.keySetArray(new String[0])) {
+            if (!open.containsKey(key)) {
+                accruedUntil.remove(key);
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    public int size() {
+        return accruedUntil.size();
+    }
+
+    public void load() {
+        File file = new File(LEDGER_FILE);
+        if (!file.exists()) return;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int split = line.lastIndexOf('|');
+                if (split < 0) {
+                    System.out.println("Invalid ledger line skipped: " + line);
+                    continue;
+                }
+                try {
+                    accruedUntil.put(line.substring(0, split), LocalDate.parse(line.substring(split + 1)));
+                } catch (Exception e) {
+                    System.out.println("Invalid ledger line skipped: " + line);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Error loading fine ledger: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Saves the ledger through a temporary file so a crash never leaves it half written.
+     */
+    public void save() {
+        Path target = Paths.get(LEDGER_FILE);
+        Path temp = Paths.get(LEDGER_FILE + ".tmp");
+        try {
+            if (target.getParent() != null) {
+                Files.createDirectories(target.getParent());
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(temp)) {
+                for (String key : accruedUntil.keySetArray(new String[0])) {
+                    writer.write(key + "|" + accruedUntil.get(key));
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("Error saving fine ledger: " + e.getMessage());
+        }
+    }
+}
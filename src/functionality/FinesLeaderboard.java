@@ -0,0 +1,94 @@
+package functionality;
+
+import model.Borrower;
+import model.FineListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import datastructures.TreeMap;
+
+/**
+ * Borrowers with outstanding fines, kept ordered by amount owed as fines
+ * are added. Registered as each tracked borrower's FineListener, so
+ * Borrower.addFine re-ranks the borrower in O(log n) and the top debtors
+ * can be read in O(log n + k) at any time, without scanning every borrower.
+ * Methods are synchronized so desks sharing a registry can update it concurrently.
+ */
+public class FinesLeaderboard implements FineListener {
+
+    // Highest fines first, ties by ID
+    private static final class Rank implements Comparable<Rank> {
+        final double fines;
+        final String id;
+
+        Rank(double fines, String id) {
+            this.fines = fines;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Rank other) {
+            int byFines = Double.compare(other.fines, fines);
+            return byFines != 0 ? byFines : id.compareTo(other.id);
+        }
+    }
+
+    private TreeMap<Rank, Borrower> ranking;
+
+    public FinesLeaderboard() {
+        ranking = new TreeMap<>();
+    }
+
+    /**
+     * Starts following the borrower's fines.
+     * Time complexity: O(log n).
+     */
+    public synchronized void track(Borrower borrower) {
+        borrower.setFineListener(this);
+        if (borrower.getFinesOwed() > 0) {
+            ranking.put(new Rank(borrower.getFinesOwed(), borrower.getIdNumber()), borrower);
+        }
+    }
+
+    /**
+     * Stops following the borrower, e.g. when it leaves the registry.
+     */
+    public synchronized void untrack(Borrower borrower) {
+        if (borrower.getFineListener() == this) {
+            borrower.setFineListener(null);
+        }
+        ranking.remove(new Rank(borrower.getFinesOwed(), borrower.getIdNumber()));
+    }
+
+    @Override
+    public synchronized void fineChanged(Borrower borrower, double previousFines) {
+        ranking.remove(new Rank(previousFines, borrower.getIdNumber()));
+        if (borrower.getFinesOwed() > 0) {
+            ranking.put(new Rank(borrower.getFinesOwed(), borrower.getIdNumber()), borrower);
+        }
+    }
+
+    /**
+     * The k borrowers owing the most, highest first.
+     * Time complexity: O(log n + k).
+     */
+    public synchronized List<Borrower> top(int k) {
+        List<Borrower> result = new ArrayList<>(Math.max(0, Math.min(k, ranking.size())));
+        for (Map.Entry<Rank, Borrower> entry : ranking) {
+            if (result.size() >= k) break;
+            result.add(entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Number of borrowers currently owing fines.
+     */
+    public synchronized int size() {
+        return ranking.size();
+    }
+
+    public synchronized void clear() {
+        ranking = new TreeMap<>();
+    }
+}
@@ -0,0 +1,113 @@
+package functionality;
+
+import model.Borrower;
+import java.util.ArrayList;
+import java.util.List;
+import datastructures.HashMap;
+
+/**
+ * BorrowerRegistry for a single desk, backed by the unsynchronised HashMap.
+ */
+public class HashBorrowerRegistry implements BorrowerRegistry {
+    private HashMap<String, Borrower> borrowers; // ID -> Borrower
+    // Borrowers owing fines, ranked as Borrower.addFine is called
+    private final FinesLeaderboard leaderboard = new FinesLeaderboard();
+
+    public HashBorrowerRegistry() {
+        borrowers = new HashMap<>();
+    }
+
+    @Override
+    public void addBorrower(Borrower borrower) {
+        if (borrower == null) {
+            throw new IllegalArgumentException("Borrower cannot be null");
+        }
+        if (borrowers.containsKey(borrower.getIdNumber())) {
+            throw new IllegalArgumentException("Borrower with ID " + borrower.getIdNumber() + " already exists");
+        }
+        borrowers.put(borrower.getIdNumber(), borrower);
+        leaderboard.track(borrower);
+    }
+
+    @Override
+    public boolean removeBorrower(String idNumber) {
+        Borrower borrower = findBorrower(idNumber);
+        if (borrower == null) {
+            return false;
+        }
+        if (borrower.hasBorrowedBooks()) {
+            throw new IllegalStateException("Cannot remove borrower with borrowed books");
+        }
+        if (borrower.getFinesOwed() > 0) {
+            throw new IllegalStateException("Cannot remove borrower with outstanding fines");
+        }
+        borrowers.remove(idNumber);
+        leaderboard.untrack(borrower);
+        return true;
+    }
+
+    @Override
+    public Borrower findBorrower(String idNumber) {
+        return borrowers.get(idNumber);
+    }
+
+    @Override
+    public List<Borrower> getAllBorrowers() {
+        List<Borrower> allBorrowers = new ArrayList<>();
+        for (Borrower b : borrowers.valuesArray(new Borrower[0])) {
+            allBorrowers.add(b);
+        }
+        return allBorrowers;
+    }
+
+    @Override
+    public int size() {
+        return borrowers.size();
+    }
+
+    @Override
+    public void clear() {
+        for (Borrower b : getAllBorrowers()) {
+            leaderboard.untrack(b);
+        }
+        borrowers.clear();
+        leaderboard.clear();
+    }
+
+    /**
+     * Time complexity: O(log n + k), independent of how many borrowers owe nothing.
+     */
+    @Override
+    public List<Borrower> getTopDebtors(int k) {
+        return leaderboard.top(k);
+    }
+
+    @Override
+    public String getDataStructureJustification() {
+        return "HashMap provides O(1) average time complexity for insert, delete, and lookup operations, " +
+                "which are our most common operations. While TreeMap would provide O(log n) operations " +
+                "and maintain sorted order, we don't need constant sorting and can sort when needed " +
+                "(like for the recursive search implementation). HashMap is more memory efficient " +
+                "for our primary use cases.";
+    }
+
+    @Override
+    public void loadBorrower(Borrower borrower) {
+        Borrower previous = borrowers.get(borrower.getIdNumber());
+        if (previous != null) {
+            leaderboard.untrack(previous);
+        }
+        borrowers.put(borrower.getIdNumber(), borrower);
+        leaderboard.track(borrower);
+    }
+
+    @Override
+    public void loadBorrowers(List<Borrower> borrowerList) {
+        // Presize so a large load does not rehash repeatedly
+        borrowers.ensureCapacity(borrowers.size() + borrowerList.size());
+        for (Borrower borrower : borrowerList) {
+            loadBorrower(borrower);
+        }
+    }
+}
+
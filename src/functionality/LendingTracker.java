@@ -1,50 +1,338 @@
 package functionality;
 
+import model.LoanStatus;
 import model.Transaction;
+import model.TransactionColumnStore;
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import datastructures.HashMap;
 import datastructures.Queue;
+import datastructures.SlidingWindowCounter;
+import utils.WriteAheadLog;
 
 public class LendingTracker {
+    private static final String SNAPSHOT_FILE = "data/transactions.txt";
+    private static final String LOG_FILE = "data/transactions.log";
+    private static final String ARCHIVE_FILE = "data/transactions-archive.txt";
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 10_000;
+    private static final int DEFAULT_RETENTION_DAYS = 365;
+    private static final int DEFAULT_POPULARITY_DAYS = 30;
+    private static final int POPULARITY_TOP_K = 5;
+
     private Queue<Transaction> transactions;
+    // Open loans keyed by ISBN|borrowerId, oldest first
+    private HashMap<String, Queue<Transaction>> openLoans;
+    // Borrows and returns since the snapshot in transactions.txt was saved
+    private WriteAheadLog log;
+    // Last log sequence number covered by the snapshot
+    private long snapshotSequence;
+    // Length of the archive file when the snapshot was written; -1 if the snapshot predates it
+    private long archiveLength = -1;
+    private int recordsSinceCheckpoint;
+    private int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+    private int retentionDays = DEFAULT_RETENTION_DAYS;
+    // Lifetime loan counts, including loans already archived
+    private HashMap<String, Integer> loansPerBook;
+    private HashMap<String, Integer> loansPerBorrower;
+    // Notified of every new loan and every return
+    private OverdueMonitor overdueMonitor;
+    // Columnar copy of the in-memory history for reports
+    private TransactionColumnStore columns;
+    // Borrows per book over the last popularity window, by borrow day
+    private SlidingWindowCounter<String> popularity;
+    // Bounded-memory activity estimates; null unless approximate counts are enabled
+    private ApproximateActivity approximate;
+    // Told each book's lifetime loan count, to rank its autocomplete
+    private BookInventory inventory;
+
+    public LendingTracker() throws IOException {
+        this(WriteAheadLog.SyncPolicy.EVERY_RECORD, 0);
+    }
 
-    public LendingTracker() {
+    /**
+     * Opens the transaction log; call recover() once before use to load the saved history.
+     * Borrows and returns are made durable through this log, so there is no
+     * tracker without one.
+     * The tracker is not thread-safe and appends one record at a time, so
+     * the log's group commit never finds more than one record to write:
+     * each borrow or return is its own commit (see WriteAheadLog).
+     * @param syncPolicy When logged transactions are forced to disk.
+     * @param syncIntervalMillis Background fsync period, used with SyncPolicy.INTERVAL.
+     * @throws IOException if the log cannot be opened.
+     */
+    public LendingTracker(WriteAheadLog.SyncPolicy syncPolicy, long syncIntervalMillis) throws IOException {
         transactions = new Queue<>();
+        openLoans = new HashMap<>();
+        loansPerBook = new HashMap<>();
+        loansPerBorrower = new HashMap<>();
+        columns = new TransactionColumnStore();
+        popularity = new SlidingWindowCounter<>(DEFAULT_POPULARITY_DAYS, POPULARITY_TOP_K);
+        log = new WriteAheadLog(Paths.get(LOG_FILE), syncPolicy, syncIntervalMillis);
+    }
+
+    /**
+     * Loads the latest snapshot and replays the log tail after it.
+     * Each file is read exactly once and records are applied as they are parsed.
+     */
+    public void recover() {
         loadTransactionsFromFile();
+        log.advanceSequenceTo(snapshotSequence);
+        replayLog();
     }
 
-    public void addTransaction(Transaction transaction) {
-        transactions.offer(transaction);
-        saveTransactionToFile(transaction);
+    /**
+     * Attaches the monitor that schedules open loans by due date. Loans
+     * already loaded are registered now; later borrows and returns are
+     * passed on as they happen.
+     */
+    public void setOverdueMonitor(OverdueMonitor monitor) {
+        this.overdueMonitor = monitor;
+        for (Transaction t : transactions.toArray(new Transaction[0])) {
+            monitor.addTransaction(t);
+        }
     }
 
-    public boolean returnBook(String isbn, String borrowerId, String returnDateStr) {
-        Queue<Transaction> tempQueue = new Queue<>();
-        boolean updated = false;
+    /**
+     * Attaches the inventory whose autocomplete is ranked by borrow count.
+     * Counts already loaded are passed on now, later loans as they happen.
+     */
+    public void setBookInventory(BookInventory inventory) {
+        this.inventory = inventory;
+        for (String isbn : loansPerBook.keySetArray(new String[0])) {
+            inventory.setBorrowCount(isbn, loansPerBook.get(isbn));
+        }
+    }
+
+    public int getTransactionCount() {
+        return transactions.size();
+    }
 
+    /**
+     * Records a new loan. The record is appended to the transaction log
+     * first and the in-memory history only changes once that succeeds, so
+     * memory never holds a loan that recovery would not bring back.
+     * @throws IOException if the append fails; nothing is recorded.
+     */
+    public void addTransaction(Transaction transaction) throws IOException {
+        long sequence = log.append(transaction.toFileString());
+        transaction.setLoanId(sequence);
+        addRecord(transaction, true);
+        recordsSinceCheckpoint++;
+    }
+
+    /**
+     * Marks the oldest open loan of this book by this borrower as returned.
+     * Time complexity: O(1) average via the open-loan index. The return is
+     * appended to the transaction log as the closed transaction's line rather
+     * than rewriting the whole file; see applyRecord for how it is replayed.
+     * As with addTransaction, the line is logged before the loan is closed.
+     * @return false if the borrower has no open loan of the book.
+     * @throws IOException if the append fails; the loan stays open.
+     */
+    public boolean returnBook(String isbn, String borrowerId, String returnDateStr) throws IOException {
         LocalDate returnDate = LocalDate.parse(returnDateStr);
 
-        while (!transactions.isEmpty()) {
-            Transaction t = transactions.poll();
+        Queue<Transaction> loans = openLoans.get(loanKey(isbn, borrowerId));
+        if (loans == null) {
+            return false;
+        }
+        Transaction open = loans.peek();
+        Transaction closed = new Transaction(open.getBookIsbn(), open.getBorrowerId(), open.getBorrowDate(),
+                returnDate, LoanStatus.RETURNED);
+        closed.setLoanId(open.getLoanId());
+        log.append(closed.toFileString());
+
+        closeLoan(pollOpenLoan(isbn, borrowerId, null, 0), returnDate);
+        recordsSinceCheckpoint++;
+        return true;
+    }
+
+    private void closeLoan(Transaction t, LocalDate returnDate) {
+        t.setReturnDate(returnDate);
+        t.setStatus(LoanStatus.RETURNED);
+        columns.update(t);
+        if (overdueMonitor != null) {
+            overdueMonitor.removeTransaction(t);
+        }
+    }
 
-            if (!updated &&
-                t.getBookIsbn().equals(isbn) &&
-                t.getBorrowerId().equals(borrowerId) &&
-                t.getStatus().equals("borrowed")) {
+    private static String loanKey(String isbn, String borrowerId) {
+        return isbn + "|" + borrowerId;
+    }
+
+    private void indexIfOpen(Transaction t) {
+        if (!t.getStatus().isOpen()) return;
+        String key = loanKey(t.getBookIsbn(), t.getBorrowerId());
+        Queue<Transaction> loans = openLoans.get(key);
+        if (loans == null) {
+            loans = new Queue<>();
+            openLoans.put(key, loans);
+        }
+        loans.offer(t);
+    }
 
-                t.setReturnDate(returnDate);
-                t.setStatus("returned");
-                updated = true;
+    /**
+     * Removes and returns an open loan of the pair, or null. With a loan id
+     * only the loan with that id qualifies, wherever it is in the queue.
+     * Otherwise it is the oldest open loan, and if borrowDate is given it
+     * must have been borrowed that day.
+     */
+    private Transaction pollOpenLoan(String isbn, String borrowerId, LocalDate borrowDate, long loanId) {
+        String key = loanKey(isbn, borrowerId);
+        Queue<Transaction> loans = openLoans.get(key);
+        if (loans == null) return null;
+
+        Transaction t;
+        if (loanId != 0) {
+            t = removeLoan(loans, loanId);
+            if (t == null) return null;
+        } else {
+            if (borrowDate != null && loans.peek().getBorrowEpochDay() != borrowDate.toEpochDay()) return null;
+            t = loans.poll();
+        }
+        if (loans.isEmpty()) {
+            openLoans.remove(key);
+        }
+        return t;
+    }
+
+    // A pair rarely has more than one loan open, so the queue is rebuilt without the match
+    private static Transaction removeLoan(Queue<Transaction> loans, long loanId) {
+        Transaction[] open = loans.toArray(new Transaction[0]);
+        Transaction match = null;
+        for (Transaction t : open) {
+            if (t.getLoanId() == loanId) {
+                match = t;
+                break;
             }
+        }
+        if (match == null) return null;
+        loans.clear();
+        for (Transaction t : open) {
+            if (t != match) loans.offer(t);
+        }
+        return match;
+    }
+
+    /**
+     * Replays one line of the transaction log. A "returned" line is a return
+     * event if it closes an open loan of the same book and borrower: the one
+     * with its loan id, or for lines written before loans had ids, the
+     * oldest one if it has the same borrow date. Any other line is a new record.
+     * @param countLoan Whether a new record adds to the lifetime loan counts
+     *                  (false for snapshot lines, whose counts are stored with the snapshot).
+     */
+    private void applyRecord(Transaction record, boolean countLoan) {
+        if (record.getStatus() == LoanStatus.RETURNED) {
+            Transaction open = pollOpenLoan(record.getBookIsbn(), record.getBorrowerId(), record.getBorrowDate(),
+                    record.getLoanId());
+            if (open != null) {
+                closeLoan(open, record.getReturnDate());
+                return;
+            }
+        }
+        addRecord(record, countLoan);
+    }
 
-            tempQueue.offer(t);
+    private void addRecord(Transaction record, boolean countLoan) {
+        transactions.offer(record);
+        columns.append(record);
+        popularity.add(record.getBookIsbn(), record.getBorrowEpochDay());
+        if (approximate != null) {
+            approximate.record(record);
+        }
+        indexIfOpen(record);
+        if (overdueMonitor != null) {
+            overdueMonitor.addTransaction(record);
+        }
+        if (countLoan) {
+            increment(loansPerBook, record.getBookIsbn(), 1);
+            increment(loansPerBorrower, record.getBorrowerId(), 1);
+            if (inventory != null) {
+                inventory.setBorrowCount(record.getBookIsbn(), loansPerBook.get(record.getBookIsbn()));
+            }
         }
+    }
+
+    private static void increment(HashMap<String, Integer> counts, String key, int by) {
+        Integer current = counts.get(key);
+        counts.put(key, current == null ? by : current + by);
+    }
+
+    /**
+     * Total times the book has been borrowed, including archived history.
+     */
+    public int getLoanCountForBook(String isbn) {
+        Integer count = loansPerBook.get(isbn);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Total loans made by the borrower, including archived history.
+     */
+    public int getLoanCountForBorrower(String borrowerId) {
+        Integer count = loansPerBorrower.get(borrowerId);
+        return count == null ? 0 : count;
+    }
 
-        transactions.addAll(tempQueue);
-        saveAllTransactions();
-        return updated;
+    /**
+     * The most borrowed books over the popularity window ending today, most
+     * borrowed first. Answered from incrementally maintained counts.
+     * Time complexity: O(K log K) for the top K, plus one O(n log K) pass
+     * after the window has slid past a day of borrows.
+     */
+    public Map<String, Integer> getMostBorrowedBooks() {
+        return popularity.top(LocalDate.now().toEpochDay());
+    }
+
+    public int getPopularityWindowDays() {
+        return popularity.getWindowDays();
+    }
+
+    /**
+     * Changes the window of the most-borrowed report and recounts it from the
+     * in-memory history. Loans already archived (see setRetentionDays) are not recounted.
+     * @param days Window length in days.
+     */
+    public void setPopularityWindow(int days) {
+        popularity = new SlidingWindowCounter<>(days, POPULARITY_TOP_K);
+        for (Transaction t : transactions.toArray(new Transaction[0])) {
+            popularity.add(t.getBookIsbn(), t.getBorrowEpochDay());
+        }
+        if (approximate != null) {
+            enableApproximateCounts(approximate.getEpsilon(), approximate.getDelta());
+        }
+    }
+
+    /**
+     * Starts keeping approximate per-book and per-borrower activity over the
+     * popularity window (see ApproximateActivity), seeded from the in-memory history.
+     * @param epsilon Largest overestimate, as a fraction of the loans in the window.
+     * @param delta   Probability that a per-key estimate exceeds that bound.
+     */
+    public void enableApproximateCounts(double epsilon, double delta) {
+        approximate = new ApproximateActivity(popularity.getWindowDays(), epsilon, delta);
+        for (Transaction t : transactions.toArray(new Transaction[0])) {
+            approximate.record(t);
+        }
+    }
+
+    /**
+     * @return the approximate activity, or null if it is not enabled.
+     */
+    public ApproximateActivity getApproximateActivity() {
+        return approximate;
     }
 
     public void listTransactions() {
@@ -59,39 +347,257 @@ public class LendingTracker {
         }
     }
 
+    /**
+     * Loads the snapshot. Header lines starting with '#' carry the log
+     * sequence it covers and the lifetime loan counts; the remaining lines
+     * are the open and recently closed transactions. A snapshot without a
+     * header (the older plain format) has its counts rebuilt from its lines.
+     */
     private void loadTransactionsFromFile() {
-        File file = new File("data/transactions.txt");
+        File file = new File(SNAPSHOT_FILE);
         if (!file.exists()) return;
 
+        boolean hasCounts = false;
         try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
             String line;
             while ((line = reader.readLine()) != null) {
-                Transaction t = Transaction.fromFileString(line);
-                transactions.offer(t);
+                if (line.startsWith("#")) {
+                    hasCounts |= applyHeader(line);
+                } else if (!line.isEmpty()) {
+                    applyRecord(Transaction.fromFileString(line), false);
+                }
             }
         } catch (IOException e) {
             System.out.println("Failed to load transactions: " + e.getMessage());
         }
+
+        if (!hasCounts) {
+            for (Transaction t : transactions.toArray(new Transaction[0])) {
+                increment(loansPerBook, t.getBookIsbn(), 1);
+                increment(loansPerBorrower, t.getBorrowerId(), 1);
+            }
+        }
     }
 
-    private void saveTransactionToFile(Transaction t) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter("data/transactions.txt", true))) {
-            writer.write(t.toFileString());
-            writer.newLine();
+    private boolean applyHeader(String line) {
+        String[] parts = line.substring(1).split("\\|");
+        switch (parts[0]) {
+            case "checkpoint":
+                snapshotSequence = Long.parseLong(parts[1]);
+                return true;
+            case "archive":
+                archiveLength = Long.parseLong(parts[1]);
+                return true;
+            case "book":
+                increment(loansPerBook, parts[1], Integer.parseInt(parts[2]));
+                return true;
+            case "borrower":
+                increment(loansPerBorrower, parts[1], Integer.parseInt(parts[2]));
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Applies only the log records the snapshot does not already cover
+    private void replayLog() {
+        try {
+            log.replay(snapshotSequence, (line, sequence) -> {
+                Transaction record = Transaction.fromFileString(line);
+                applyRecord(record, true);
+                // A borrow's loan id is its own sequence number; a return line carries its loan's id
+                if (record.getLoanId() == 0) {
+                    record.setLoanId(sequence);
+                }
+                recordsSinceCheckpoint++;
+            });
         } catch (IOException e) {
-            System.out.println("Failed to save transaction: " + e.getMessage());
+            System.out.println("Failed to replay transaction log: " + e.getMessage());
         }
     }
 
-    private void saveAllTransactions() {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter("data/transactions.txt", false))) {
-            for (Transaction t : transactions.toArray(new Transaction[0])) {
+    /**
+     * Runs checkpoint() once checkpointInterval records have been logged
+     * since the last one. Borrows and returns never checkpoint themselves:
+     * a checkpoint rewrites the whole retained history and fsyncs it, a
+     * stall proportional to the history, so the caller runs this between
+     * requests (Main does so whenever it is back at a menu) rather than
+     * inside one.
+     * @return true if a checkpoint was due and written.
+     */
+    public boolean checkpointIfDue() {
+        return recordsSinceCheckpoint >= checkpointInterval && checkpoint();
+    }
+
+    /**
+     * Writes a compact snapshot and empties the log it covers.
+     *
+     * Closed loans returned more than retentionDays ago are appended to the
+     * archive file and dropped from memory; their counts survive in the
+     * snapshot header. The snapshot is written to a temporary file and
+     * renamed into place, and it records the last log sequence it covers,
+     * so a crash at any point leaves either the old or the new snapshot and
+     * recovery never replays a record twice. It also records the archive's
+     * length: loans archived by a checkpoint that crashed before its
+     * snapshot was renamed are still in the old snapshot, so the next
+     * checkpoint cuts the archive back to the old snapshot's length before
+     * archiving them again, and no loan is archived twice.
+     * Takes time proportional to the in-memory history; see checkpointIfDue.
+     * @return true if the snapshot was written.
+     */
+    public boolean checkpoint() {
+        long sequence = log.getLastSequence();
+        long cutoff = LocalDate.now().minusDays(retentionDays).toEpochDay();
+
+        Queue<Transaction> retained = new Queue<>();
+        List<Transaction> archived = new ArrayList<>();
+        for (Transaction t : transactions.toArray(new Transaction[0])) {
+            if (t.hasReturnDate() && t.getReturnEpochDay() < cutoff) {
+                archived.add(t);
+            } else {
+                retained.offer(t);
+            }
+        }
+
+        long archivedLength;
+        try {
+            archivedLength = appendToArchive(archived);
+            writeSnapshot(sequence, archivedLength, retained);
+        } catch (IOException e) {
+            System.out.println("Failed to write transaction snapshot: " + e.getMessage());
+            return false;
+        }
+
+        transactions = retained;
+        if (!archived.isEmpty()) {
+            columns.clear();
+            for (Transaction t : retained.toArray(new Transaction[0])) {
+                columns.append(t);
+            }
+        }
+        snapshotSequence = sequence;
+        archiveLength = archivedLength;
+        recordsSinceCheckpoint = 0;
+        try {
+            log.truncate();
+        } catch (IOException e) {
+            // Harmless: records up to snapshotSequence are skipped on replay
+            System.out.println("Failed to truncate transaction log: " + e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Appends the loans to the archive, after the part the current snapshot
+     * accounts for, and forces them to disk before the new snapshot names
+     * the archive's length.
+     * @return the archive's length afterwards.
+     */
+    private long appendToArchive(List<Transaction> archived) throws IOException {
+        Path path = Paths.get(ARCHIVE_FILE);
+        if (archived.isEmpty() && !Files.exists(path)) return 0;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (archiveLength >= 0 && channel.size() > archiveLength) {
+                channel.truncate(archiveLength); // left by a checkpoint whose snapshot was never written
+            }
+            if (!archived.isEmpty()) {
+                channel.position(channel.size());
+                BufferedWriter writer = new BufferedWriter(
+                        Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1));
+                for (Transaction t : archived) {
+                    writer.write(t.toFileString());
+                    writer.newLine();
+                }
+                writer.flush();
+                channel.force(false);
+            }
+            return channel.size();
+        }
+    }
+
+    private void writeSnapshot(long sequence, long archivedLength, Queue<Transaction> retained) throws IOException {
+        Path target = Paths.get(SNAPSHOT_FILE);
+        Path temp = Paths.get(SNAPSHOT_FILE + ".tmp");
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(temp)) {
+            writer.write("#checkpoint|" + sequence);
+            writer.newLine();
+            writer.write("#archive|" + archivedLength);
+            writer.newLine();
+            for (String isbn : loansPerBook.keySetArray(new String[0])) {
+                writer.write("#book|" + isbn + "|" + loansPerBook.get(isbn));
+                writer.newLine();
+            }
+            for (String id : loansPerBorrower.keySetArray(new String[0])) {
+                writer.write("#borrower|" + id + "|" + loansPerBorrower.get(id));
+                writer.newLine();
+            }
+            for (Transaction t : retained.toArray(new Transaction[0])) {
                 writer.write(t.toFileString());
                 writer.newLine();
             }
+        }
+        try (FileOutputStream out = new FileOutputStream(temp.toFile(), true)) {
+            out.getFD().sync();
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // The rename is only durable once the directory entry is on disk too
+        Path dir = target.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
         } catch (IOException e) {
-            System.out.println("Failed to update transaction log: " + e.getMessage());
+            // Not every platform can open a directory to sync it; the rename itself is still atomic
+        }
+    }
+
+    /**
+     * @param records Logged records after which checkpointIfDue writes a checkpoint.
+     *                Smaller values mean shorter log replays on restart but more
+     *                frequent snapshot rewrites.
+     */
+    public void setCheckpointInterval(int records) {
+        if (records <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive: " + records);
         }
+        checkpointInterval = records;
+    }
+
+    /**
+     * @param days How long returned loans stay in memory and in the snapshot before being archived.
+     */
+    public void setRetentionDays(int days) {
+        if (days < 0) {
+            throw new IllegalArgumentException("Retention must not be negative: " + days);
+        }
+        retentionDays = days;
+    }
+
+    /**
+     * Commit statistics (batch size, latency) for tuning the sync policy.
+     */
+    public WriteAheadLog getTransactionLog() {
+        return log;
+    }
+
+    public void close() {
+        try {
+            log.close();
+        } catch (IOException e) {
+            System.out.println("Failed to close transaction log: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The in-memory history in columnar form, kept in step with every
+     * borrow, return and checkpoint; used by the reports.
+     */
+    public TransactionColumnStore getColumnStore() {
+        return columns;
     }
 
     public List<Transaction> getAllTransactions() {
@@ -101,11 +607,4 @@ public class LendingTracker {
         }
         return list;
     }
-
-    public void loadTransactions(List<Transaction> transactionList) {
-        transactions.clear();
-        for (Transaction t : transactionList) {
-            transactions.offer(t);
-        }
-    }
 }
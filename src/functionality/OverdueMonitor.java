@@ -2,50 +2,172 @@ package functionality;
 import model.Borrower;
 import model.Transaction;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import datastructures.CalendarQueue;
+import datastructures.HashMap;
 import datastructures.PriorityQueue;
 
+/**
+ * Long-running overdue detection. Open loans are filed by due date in a
+ * day-bucketed calendar queue when they are borrowed and taken out when
+ * returned; each advance only touches the loans falling due since the
+ * previous one, instead of rescanning the whole history. Overdue loans sit
+ * in an indexed heap ordered by due date, so a return drops one loan
+ * through its handle.
+ */
 public class OverdueMonitor {
+    // Open loans not yet overdue, keyed by due epoch day
+    private CalendarQueue<Transaction> dueSchedule;
+    // Open loans past their due date, longest overdue first
     private PriorityQueue<Transaction> overdueBooks;
+    private HashMap<Transaction, PriorityQueue.Handle<Transaction>> overdueHandles;
+    private FineLedger ledger;
 
     public OverdueMonitor() {
-        overdueBooks = new PriorityQueue<>(
-            (t1, t2) -> t1.getBorrowDate().plusDays(14).compareTo(t2.getBorrowDate().plusDays(14))
-        );
+        ledger = new FineLedger();
+        dueSchedule = new CalendarQueue<>();
+        overdueBooks = new PriorityQueue<>(Transaction.BY_DUE_DATE);
+        overdueHandles = new HashMap<>();
     }
 
+    /**
+     * Registers a new open loan. Called by LendingTracker for every borrow.
+     * Time complexity: O(log d) for d distinct due days.
+     */
     public void addTransaction(Transaction transaction) {
-        if (transaction.getStatus().equals("borrowed")) {
-            LocalDate dueDate = transaction.getBorrowDate().plusDays(14);
-            if (dueDate.isBefore(LocalDate.now())) {
-                overdueBooks.offer(transaction);
-            }
+        if (transaction.getStatus().isOpen()) {
+            dueSchedule.schedule(transaction, transaction.getDueEpochDay());
+        }
+    }
+
+    /**
+     * Unregisters a loan that has been returned. Called by LendingTracker.
+     */
+    public void removeTransaction(Transaction transaction) {
+        if (!dueSchedule.cancel(transaction)) {
+            PriorityQueue.Handle<Transaction> handle = overdueHandles.remove(transaction);
+            if (handle != null) overdueBooks.remove(handle);
         }
+        ledger.close(transaction);
     }
 
+    /**
+     * Rolls the schedule forward to the given day, moving every loan whose
+     * due date is now in the past into the overdue set.
+     * @return the loans that became overdue with this advance.
+     */
+    public List<Transaction> advanceTo(LocalDate today) {
+        List<Transaction> newlyOverdue = new ArrayList<>();
+        dueSchedule.pollBefore(today.toEpochDay(), t -> {
+            overdueHandles.put(t, overdueBooks.offer(t));
+            newlyOverdue.add(t);
+        });
+        return newlyOverdue;
+    }
+
+    /**
+     * Rebuilds the schedule from a full list of transactions. Only needed when
+     * the monitor is not attached to a LendingTracker. Loans already overdue
+     * are heapified in one O(n) pass instead of being offered one by one.
+     */
     public void checkOverdue(List<Transaction> transactions) {
-        overdueBooks.clear();
+        dueSchedule.clear();
+        overdueHandles.clear();
+        int today = (int) LocalDate.now().toEpochDay();
+
+        List<Transaction> overdue = new ArrayList<>();
         for (Transaction t : transactions) {
-            if (t.getStatus().equals("borrowed")) {
-                LocalDate dueDate = t.getBorrowDate().plusDays(14);
-                if (dueDate.isBefore(LocalDate.now())) {
-                    overdueBooks.offer(t);
-                }
+            if (!t.getStatus().isOpen()) {
+                ledger.close(t);
+            } else if (t.isOverdue(today)) {
+                overdue.add(t);
+            } else {
+                addTransaction(t);
             }
         }
+
+        List<PriorityQueue.Handle<Transaction>> handles = overdueBooks.heapify(overdue);
+        for (PriorityQueue.Handle<Transaction> handle : handles) {
+            overdueHandles.put(handle.get(), handle);
+        }
+    }
+
+    public int getOverdueCount() {
+        return overdueBooks.size();
+    }
+
+    /**
+     * The open loan that has been overdue the longest, or null if none is.
+     */
+    public Transaction getLongestOverdue() {
+        return overdueBooks.peek();
     }
 
+    /**
+     * Charges each overdue loan to its borrower, found through the registry's ID index.
+     * Each charge goes through updateBorrower, so it cannot race the borrower's removal.
+     * Time complexity: O(k) for k overdue loans, independent of the number of borrowers.
+     */
+    public void updateFines(BorrowerRegistry registry) {
+        accrueFines(registry::updateBorrower);
+    }
+
+    /**
+     * Same as updateFines(BorrowerRegistry) for a plain list: the list is
+     * indexed by ID once, then each overdue loan is a single hash probe
+     * instead of a scan of every borrower.
+     */
     public void updateFines(List<Borrower> borrowers) {
-        while (!overdueBooks.isEmpty()) {
-            Transaction t = overdueBooks.poll();
-            long overdueDays = java.time.temporal.ChronoUnit.DAYS.between(t.getBorrowDate().plusDays(14), LocalDate.now());
+        HashMap<String, Borrower> byId = new HashMap<>(borrowers.size());
+        for (Borrower b : borrowers) {
+            byId.put(b.getIdNumber(), b);
+        }
+        accrueFines((id, charge) -> {
+            Borrower b = byId.get(id);
+            if (b == null) return false;
+            charge.accept(b);
+            return true;
+        });
+    }
 
-            for (Borrower b : borrowers) {
-                if (b.getIdNumber().equals(t.getBorrowerId())) {
+    /**
+     * Charges only the overdue days since the ledger's last accrual for each
+     * loan, so repeated runs (even several a day) never double-charge.
+     */
+    private void accrueFines(BiPredicate<String, Consumer<Borrower>> updateBorrower) {
+        LocalDate today = LocalDate.now();
+        advanceTo(today);
+        for (Transaction t : overdueBooks.toArray(new Transaction[0])) {
+            // Loans of unknown borrowers are not accrued
+            updateBorrower.test(t.getBorrowerId(), b -> {
+                long overdueDays = ledger.accrue(t, today);
+                if (overdueDays > 0) {
                     b.addFine(overdueDays * 1.0); // GHS 1 per day
-                    break;
                 }
-            }
+            });
         }
     }
+
+    public void loadLedger() {
+        ledger.load();
+    }
+
+    /**
+     * Drops ledger entries of loans that are no longer open; called once
+     * recovery has rebuilt the open loans.
+     */
+    public void reconcileLedger(List<Transaction> transactions) {
+        ledger.retainOpen(transactions);
+    }
+
+    public void saveLedger() {
+        ledger.save();
+    }
+
+    public int getLedgerSize() {
+        return ledger.size();
+    }
 }
@@ -1,6 +1,8 @@
 package model;
 
+import java.util.Locale;
 import java.util.Objects;
+import utils.TextKeys;
 
 public class Book {
     private String title;
@@ -11,6 +13,15 @@ public class Book {
     private String publisher;
     private String shelfLocation;
 
+    // Search and sort keys (see TextKeys), computed on first use; the fields never change
+    private String normalizedTitle;
+    private String normalizedAuthor;
+    private String normalizedCategory;
+    private String normalizedPublisher;
+    private volatile byte[] titleSortKey;
+    private volatile byte[] authorSortKey;
+    private volatile byte[] categorySortKey;
+
     // Constructor
     public Book(String title, String author, String isbn, String category, int year, String publisher, String shelfLocation) {
         this.title = title;
@@ -31,6 +42,43 @@ public class Book {
     public String getPublisher() { return publisher; }
     public String getShelfLocation() { return shelfLocation; }
 
+    // Case-folded, accent-stripped fields for matching against a normalised query
+    public String getNormalizedTitle() {
+        if (normalizedTitle == null) normalizedTitle = TextKeys.normalize(title);
+        return normalizedTitle;
+    }
+
+    public String getNormalizedAuthor() {
+        if (normalizedAuthor == null) normalizedAuthor = TextKeys.normalize(author);
+        return normalizedAuthor;
+    }
+
+    public String getNormalizedCategory() {
+        if (normalizedCategory == null) normalizedCategory = TextKeys.normalize(category);
+        return normalizedCategory;
+    }
+
+    public String getNormalizedPublisher() {
+        if (normalizedPublisher == null) normalizedPublisher = TextKeys.normalize(publisher);
+        return normalizedPublisher;
+    }
+
+    // Byte sort keys, compared with TextKeys.compare; shared, so not to be modified
+    public byte[] getTitleSortKey() {
+        if (titleSortKey == null) titleSortKey = TextKeys.sortKey(title);
+        return titleSortKey;
+    }
+
+    public byte[] getAuthorSortKey() {
+        if (authorSortKey == null) authorSortKey = TextKeys.sortKey(author);
+        return authorSortKey;
+    }
+
+    public byte[] getCategorySortKey() {
+        if (categorySortKey == null) categorySortKey = TextKeys.sortKey(category);
+        return categorySortKey;
+    }
+
     // Save book as a file-friendly string
     public String toFileString() {
         return String.join("||",
@@ -83,6 +131,11 @@ public class Book {
     // hashCode based on ISBN
     @Override
     public int hashCode() {
-        return Objects.hash(isbn.toLowerCase());
+        return Objects.hash(isbnKey(isbn));
+    }
+
+    // ISBN as a lookup key: equal for ISBNs that equals treats as the same book
+    public static String isbnKey(String isbn) {
+        return isbn.toLowerCase(Locale.ROOT);
     }
 }
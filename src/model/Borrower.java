@@ -3,12 +3,18 @@ package model;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * A registered borrower. Fines and borrowed books are updated under the
+ * borrower's own lock, so desks sharing a registry do not lose each other's
+ * updates; fines and the listener can be read without it.
+ */
 public class Borrower {
     private String name;
     private String idNumber;
     private List<String> borrowedBooks; // List of ISBNs
-    private double finesOwed;
+    private volatile double finesOwed;
     private String contactInfo;
+    private volatile FineListener fineListener; // e.g. the registry's fines leaderboard
 
     // Constructor
     public Borrower(String name, String idNumber, String contactInfo) {
@@ -23,13 +29,28 @@ public class Borrower {
     public String getName() { return name; }
     public String getIdNumber() { return idNumber; }
     public List<String> getBorrowedBooks() { return borrowedBooks; }
+    public synchronized boolean hasBorrowedBooks() { return !borrowedBooks.isEmpty(); }
     public double getFinesOwed() { return finesOwed; }
     public String getContactInfo() { return contactInfo; }
-    public void addBorrowedBook(String isbn) { borrowedBooks.add(isbn); }
-    public void removeBorrowedBook(String isbn) { borrowedBooks.remove(isbn); }
-    public void addFine(double fine) { finesOwed += fine; }
+    public synchronized void addBorrowedBook(String isbn) { borrowedBooks.add(isbn); }
+    public synchronized void removeBorrowedBook(String isbn) { borrowedBooks.remove(isbn); }
 
-    public String toFileString() {
+    /**
+     * Adds to the fines owed and tells the listener, both under the
+     * borrower's lock so concurrent charges are applied and reported in turn.
+     */
+    public synchronized void addFine(double fine) {
+        double previous = finesOwed;
+        finesOwed += fine;
+        if (fineListener != null) {
+            fineListener.fineChanged(this, previous);
+        }
+    }
+
+    public FineListener getFineListener() { return fineListener; }
+    public void setFineListener(FineListener listener) { this.fineListener = listener; }
+
+    public synchronized String toFileString() {
         String books = String.join(";", borrowedBooks); // separate ISBNs with ;
         return String.join("||",
             name,
@@ -60,7 +81,7 @@ public class Borrower {
     }
 
     @Override
-    public String toString() {
+    public synchronized String toString() {
         return String.format(
             "Name: %s\nID: %s\nContact: %s\nBooks: %s\nFines: GHS %.2f%n",
             name, idNumber, contactInfo,
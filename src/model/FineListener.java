@@ -0,0 +1,8 @@
+package model;
+
+/**
+ * Notified whenever a borrower's outstanding fines change.
+ */
+public interface FineListener {
+    void fineChanged(Borrower borrower, double previousFines);
+}
@@ -0,0 +1,39 @@
+package model;
+
+/**
+ * Lifecycle state of a lending transaction. Each status keeps the lower-case
+ * code used in the transaction files.
+ */
+public enum LoanStatus {
+    BORROWED("borrowed"),
+    RETURNED("returned"),
+    RENEWED("renewed"),
+    LOST("lost");
+
+    private final String code;
+
+    LoanStatus(String code) {
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * Whether the book is still out with the borrower and can fall overdue.
+     */
+    public boolean isOpen() {
+        return this == BORROWED || this == RENEWED;
+    }
+
+    /**
+     * Parses a file code such as "borrowed".
+     */
+    public static LoanStatus fromCode(String code) {
+        for (LoanStatus status : values()) {
+            if (status.code.equals(code)) return status;
+        }
+        throw new IllegalArgumentException("Unknown loan status: " + code);
+    }
+}
@@ -1,9 +1,10 @@
 package model;
 
+import datastructures.InternPool;
+import utils.TopK;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -11,59 +12,96 @@ import java.util.stream.Collectors;
 /**
  * Represents a lending transaction in the library system.
  * Tracks book ISBN, borrower ID, borrow and return dates, and status.
+ * ISBNs and borrower IDs read from file are interned, so records share one
+ * copy of each identifier.
+ * Dates are held as epoch-day ints (days since 1970-01-01) so that bulk
+ * scans and sorts by date do not allocate; LocalDate accessors are kept.
  */
 public class Transaction {
+    public static final int LOAN_PERIOD_DAYS = 14;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    /** Orders loans by due date without allocating. */
+    public static final Comparator<Transaction> BY_DUE_DATE =
+        (t1, t2) -> Integer.compare(t1.dueDay, t2.dueDay);
+
     private String bookIsbn;
     private String borrowerId;
-    private LocalDate borrowDate;
-    private LocalDate returnDate;
-    private String status; 
+    private int borrowDay;
+    private int dueDay; // borrowDay + LOAN_PERIOD_DAYS, computed once
+    private int returnDay; // NO_DATE while not returned
+    private LoanStatus status;
+    // Sequence number of the borrow in the transaction log; 0 for records logged before loans had ids
+    private long loanId;
+
+    // Shared identifier copies for records parsed from file
+    private static final InternPool<String> ISBN_POOL = new InternPool<>();
+    private static final InternPool<String> BORROWER_ID_POOL = new InternPool<>();
 
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
     // Constructor
-    public Transaction(String bookIsbn, String borrowerId, LocalDate borrowDate, LocalDate returnDate, String status) {
+    public Transaction(String bookIsbn, String borrowerId, LocalDate borrowDate, LocalDate returnDate, LoanStatus status) {
         this.bookIsbn = bookIsbn;
         this.borrowerId = borrowerId;
-        this.borrowDate = borrowDate;
-        this.returnDate = returnDate;
+        setBorrowDay((int) borrowDate.toEpochDay());
+        this.returnDay = toDay(returnDate);
         this.status = status;
     }
 
     // Minimal constructor for borrowing
     public Transaction(String bookIsbn, String borrowerId) {
-        this.bookIsbn = bookIsbn;
-        this.borrowerId = borrowerId;
-        this.borrowDate = LocalDate.now();
-        this.returnDate = null;
-        this.status = "borrowed";
+        this(bookIsbn, borrowerId, LocalDate.now());
     }
 
     public Transaction(String bookIsbn, String borrowerId, LocalDate borrowDate) {
-        this.bookIsbn = bookIsbn;
-        this.borrowerId = borrowerId;
-        this.borrowDate = borrowDate;
-        this.returnDate = null;
-        this.status = "borrowed";
+        this(bookIsbn, borrowerId, borrowDate, null, LoanStatus.BORROWED);
+    }
+
+    private void setBorrowDay(int day) {
+        this.borrowDay = day;
+        this.dueDay = day + LOAN_PERIOD_DAYS;
+    }
+
+    private static int toDay(LocalDate date) {
+        return date == null ? NO_DATE : (int) date.toEpochDay();
     }
 
     // Getters and setters
     public String getBookIsbn() { return bookIsbn; }
     public String getBorrowerId() { return borrowerId; }
-    public LocalDate getBorrowDate() { return borrowDate; }
-    public LocalDate getReturnDate() { return returnDate; }
-    public String getStatus() { return status; }
+    public LocalDate getBorrowDate() { return LocalDate.ofEpochDay(borrowDay); }
+    public LocalDate getDueDate() { return LocalDate.ofEpochDay(dueDay); }
+    public LocalDate getReturnDate() { return returnDay == NO_DATE ? null : LocalDate.ofEpochDay(returnDay); }
+    public LoanStatus getStatus() { return status; }
+    /** Identifies the loan across restarts; 0 if it has none. */
+    public long getLoanId() { return loanId; }
 
-    public void setReturnDate(LocalDate returnDate) { this.returnDate = returnDate; }
-    public void setStatus(String status) { this.status = status; }
+    // Allocation-free epoch-day accessors
+    public int getBorrowEpochDay() { return borrowDay; }
+    public int getDueEpochDay() { return dueDay; }
+    public boolean hasReturnDate() { return returnDay != NO_DATE; }
+    /** Only meaningful when hasReturnDate() is true. */
+    public int getReturnEpochDay() { return returnDay; }
+
+    public void setReturnDate(LocalDate returnDate) { this.returnDay = toDay(returnDate); }
+    public void setStatus(LoanStatus status) { this.status = status; }
+    public void setLoanId(long loanId) { this.loanId = loanId; }
 
     /**
      * Check if this transaction is overdue (more than 14 days after borrowDate).
      */
     public boolean isOverdue() {
-        if (status.equals("returned")) return false;
-        LocalDate today = LocalDate.now();
-        return borrowDate.plusDays(14).isBefore(today);
+        return isOverdue((int) LocalDate.now().toEpochDay());
+    }
+
+    /**
+     * Same as isOverdue() against a caller-supplied day, so a bulk scan can
+     * compute today once and run without allocating.
+     * @param todayEpochDay Today as LocalDate.toEpochDay().
+     */
+    public boolean isOverdue(int todayEpochDay) {
+        return status.isOpen() && dueDay < todayEpochDay;
     }
 
     /**
@@ -75,23 +113,25 @@ public class Transaction {
             "ISBN: %s | Borrower: %s | Borrowed: %s | Return: %s | Status: %s",
             bookIsbn,
             borrowerId,
-            borrowDate.format(formatter),
-            returnDate != null ? returnDate.format(formatter) : "N/A",
-            status
+            getBorrowDate().format(formatter),
+            hasReturnDate() ? getReturnDate().format(formatter) : "N/A",
+            status.getCode()
         );
     }
 
     /**
      * Convert this transaction to a single-line string for file saving.
+     * The loan id, when there is one, is a sixth field.
      */
     public String toFileString() {
-        return String.join("|",
+        String line = String.join("|",
             bookIsbn,
             borrowerId,
-            borrowDate.format(formatter),
-            (returnDate != null ? returnDate.format(formatter) : "null"),
-            status
+            getBorrowDate().format(formatter),
+            (hasReturnDate() ? getReturnDate().format(formatter) : "null"),
+            status.getCode()
         );
+        return loanId == 0 ? line : line + "|" + loanId;
     }
 
     /**
@@ -99,38 +139,31 @@ public class Transaction {
      */
     public static Transaction fromFileString(String line) {
         String[] parts = line.split("\\|");
-        String isbn = parts[0];
-        String borrower = parts[1];
+        String isbn = ISBN_POOL.intern(parts[0]);
+        String borrower = BORROWER_ID_POOL.intern(parts[1]);
         LocalDate borrow = LocalDate.parse(parts[2], formatter);
         LocalDate ret = parts[3].equals("null") ? null : LocalDate.parse(parts[3], formatter);
-        String status = parts[4];
-        return new Transaction(isbn, borrower, borrow, ret, status);
-    }
-    public Map<String, Integer> mostBorrowedBooksLast30Days(List<Transaction> transactions) {
-    Map<String, Integer> countMap = new HashMap<>();
-    LocalDate thirtyDaysAgo = LocalDate.now().minusDays(30);
-
-    for (Transaction txn : transactions) {
-        if (txn.getBorrowDate().isAfter(thirtyDaysAgo)) {
-            countMap.put(txn.getBookIsbn(), countMap.getOrDefault(txn.getBookIsbn(), 0) + 1);
+        LoanStatus status = LoanStatus.fromCode(parts[4]);
+        Transaction t = new Transaction(isbn, borrower, borrow, ret, status);
+        if (parts.length > 5) {
+            t.loanId = Long.parseLong(parts[5]);
         }
+        return t;
     }
-
-    return countMap.entrySet().stream()
-        .sorted((a, b) -> b.getValue().compareTo(a.getValue()))
-        .limit(5) // Top 5
-        .collect(Collectors.toMap(
-            Map.Entry::getKey,
-            Map.Entry::getValue,
-            (e1, e2) -> e1,
-            LinkedHashMap::new
-        ));
+    public static Map<String, Integer> mostBorrowedBooksLast30Days(List<Transaction> transactions) {
+    return mostBorrowedBooksLast30Days(TransactionColumnStore.of(transactions));
+}
+/**
+ * Top 5 books borrowed in the last 30 days (today included), counted in
+ * one pass over the store's book and borrow-day columns.
+ */
+public static Map<String, Integer> mostBorrowedBooksLast30Days(TransactionColumnStore columns) {
+    int fromDay = (int) LocalDate.now().minusDays(29).toEpochDay();
+    return columns.topBooksBorrowedSince(fromDay, 5);
 }
 public List<Borrower> topBorrowersByFines(List<Borrower> borrowers) {
-    return borrowers.stream()
-        .sorted((b1, b2) -> Double.compare(b2.getFinesOwed(), b1.getFinesOwed()))
-        .limit(5)
-        .collect(Collectors.toList());
+    // Bounded top-5 selection instead of sorting every borrower
+    return TopK.select(borrowers, 5, (b1, b2) -> Double.compare(b1.getFinesOwed(), b2.getFinesOwed()));
 }
 public Map<String, Long> inventoryByCategory(List<Book> books) {
     return books.stream()
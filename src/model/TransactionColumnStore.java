@@ -0,0 +1,254 @@
+package model;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import datastructures.HashMap;
+
+/**
+ * Column-oriented copy of the lending history for reports. Each field is
+ * kept in its own primitive array, split into fixed-size chunks so that
+ * growing never copies existing rows: book and borrower as dictionary-encoded
+ * int ids, borrow and return dates as epoch days, status as a byte.
+ * Aggregations are then sequential loops over a few int arrays instead of
+ * walking millions of Transaction objects.
+ * Each chunk also records its latest borrow day, so date-bounded scans skip
+ * whole chunks of old loans.
+ */
+public class TransactionColumnStore {
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    private int[][] bookColumn;
+    private int[][] borrowerColumn;
+    private int[][] borrowDayColumn;
+    private int[][] returnDayColumn;
+    private byte[][] statusColumn;
+    private int[] chunkMaxBorrowDay;
+    private int size;
+
+    private Dictionary books;
+    private Dictionary borrowers;
+    // Row of each loan that can still be returned
+    private HashMap<Transaction, Integer> openRows;
+
+    public TransactionColumnStore() {
+        clear();
+    }
+
+    /**
+     * A store holding the given transactions, in list order.
+     */
+    public static TransactionColumnStore of(List<Transaction> transactions) {
+        TransactionColumnStore store = new TransactionColumnStore();
+        for (Transaction t : transactions) {
+            store.append(t);
+        }
+        return store;
+    }
+
+    /**
+     * Adds a transaction as a new row.
+     * Time complexity: O(1) amortised.
+     * @return the row number.
+     */
+    public int append(Transaction t) {
+        int chunk = size >>> CHUNK_BITS;
+        int offset = size & CHUNK_MASK;
+        if (offset == 0) {
+            addChunk(chunk);
+        }
+
+        bookColumn[chunk][offset] = books.encode(t.getBookIsbn());
+        borrowerColumn[chunk][offset] = borrowers.encode(t.getBorrowerId());
+        borrowDayColumn[chunk][offset] = t.getBorrowEpochDay();
+        returnDayColumn[chunk][offset] = t.hasReturnDate() ? t.getReturnEpochDay() : NO_DATE;
+        statusColumn[chunk][offset] = (byte) t.getStatus().ordinal();
+        chunkMaxBorrowDay[chunk] = Math.max(chunkMaxBorrowDay[chunk], t.getBorrowEpochDay());
+
+        if (t.getStatus().isOpen()) {
+            openRows.put(t, size);
+        }
+        return size++;
+    }
+
+    /**
+     * Copies the transaction's return date and status into its row, once it
+     * has been closed. Transactions never appended are ignored.
+     */
+    public void update(Transaction t) {
+        Integer row = t.getStatus().isOpen() ? openRows.get(t) : openRows.remove(t);
+        if (row == null) return;
+        int chunk = row >>> CHUNK_BITS;
+        int offset = row & CHUNK_MASK;
+        returnDayColumn[chunk][offset] = t.hasReturnDate() ? t.getReturnEpochDay() : NO_DATE;
+        statusColumn[chunk][offset] = (byte) t.getStatus().ordinal();
+    }
+
+    private void addChunk(int chunk) {
+        if (chunk == bookColumn.length) {
+            int capacity = Math.max(4, chunk * 2);
+            bookColumn = Arrays.copyOf(bookColumn, capacity);
+            borrowerColumn = Arrays.copyOf(borrowerColumn, capacity);
+            borrowDayColumn = Arrays.copyOf(borrowDayColumn, capacity);
+            returnDayColumn = Arrays.copyOf(returnDayColumn, capacity);
+            statusColumn = Arrays.copyOf(statusColumn, capacity);
+            chunkMaxBorrowDay = Arrays.copyOf(chunkMaxBorrowDay, capacity);
+        }
+        bookColumn[chunk] = new int[CHUNK_SIZE];
+        borrowerColumn[chunk] = new int[CHUNK_SIZE];
+        borrowDayColumn[chunk] = new int[CHUNK_SIZE];
+        returnDayColumn[chunk] = new int[CHUNK_SIZE];
+        statusColumn[chunk] = new byte[CHUNK_SIZE];
+        chunkMaxBorrowDay[chunk] = Integer.MIN_VALUE;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        bookColumn = new int[0][];
+        borrowerColumn = new int[0][];
+        borrowDayColumn = new int[0][];
+        returnDayColumn = new int[0][];
+        statusColumn = new byte[0][];
+        chunkMaxBorrowDay = new int[0];
+        size = 0;
+        books = new Dictionary();
+        borrowers = new Dictionary();
+        openRows = new HashMap<>();
+    }
+
+    /**
+     * Number of loans of each book borrowed on or after the given day,
+     * indexed by book id (see bookIsbn).
+     * Time complexity: O(n) over two int columns; chunks entirely before fromDay are skipped.
+     */
+    public int[] countBorrowsByBookSince(int fromDay) {
+        return countBorrowsSince(fromDay, bookColumn, books.size());
+    }
+
+    /**
+     * Number of loans made by each borrower on or after the given day,
+     * indexed by borrower id (see borrowerId).
+     * Time complexity: O(n) over two int columns; chunks entirely before fromDay are skipped.
+     */
+    public int[] countBorrowsByBorrowerSince(int fromDay) {
+        return countBorrowsSince(fromDay, borrowerColumn, borrowers.size());
+    }
+
+    private int[] countBorrowsSince(int fromDay, int[][] keyColumn, int keys) {
+        int[] counts = new int[keys];
+        int chunks = (size + CHUNK_MASK) >>> CHUNK_BITS;
+        for (int c = 0; c < chunks; c++) {
+            if (chunkMaxBorrowDay[c] < fromDay) continue;
+            int[] key = keyColumn[c];
+            int[] borrowDay = borrowDayColumn[c];
+            int rows = Math.min(CHUNK_SIZE, size - (c << CHUNK_BITS));
+            for (int i = 0; i < rows; i++) {
+                if (borrowDay[i] >= fromDay) {
+                    counts[key[i]]++;
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Number of rows currently in each status, indexed by LoanStatus.ordinal().
+     */
+    public int[] countByStatus() {
+        int[] counts = new int[LoanStatus.values().length];
+        int chunks = (size + CHUNK_MASK) >>> CHUNK_BITS;
+        for (int c = 0; c < chunks; c++) {
+            byte[] status = statusColumn[c];
+            int rows = Math.min(CHUNK_SIZE, size - (c << CHUNK_BITS));
+            for (int i = 0; i < rows; i++) {
+                counts[status[i]]++;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * The most borrowed books since the given day, most borrowed first.
+     * Time complexity: O(n + b * limit) for n rows and b distinct books.
+     */
+    public Map<String, Integer> topBooksBorrowedSince(int fromDay, int limit) {
+        return limit <= 0 ? new LinkedHashMap<>() : top(countBorrowsByBookSince(fromDay), limit, books);
+    }
+
+    /**
+     * The borrowers with the most loans since the given day, most loans first.
+     * Time complexity: O(n + b * limit) for n rows and b distinct borrowers.
+     */
+    public Map<String, Integer> topBorrowersSince(int fromDay, int limit) {
+        return limit <= 0 ? new LinkedHashMap<>() : top(countBorrowsByBorrowerSince(fromDay), limit, borrowers);
+    }
+
+    // The largest non-zero counts, decoded; ties keep the order of first appearance
+    private static Map<String, Integer> top(int[] counts, int limit, Dictionary names) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        // Small insertion-sorted leaderboard of book ids
+        int[] top = new int[Math.min(limit, counts.length)];
+        int filled = 0;
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] == 0) continue;
+            if (filled == top.length && counts[id] <= counts[top[filled - 1]]) continue;
+            int pos = filled < top.length ? filled++ : filled - 1;
+            while (pos > 0 && counts[top[pos - 1]] < counts[id]) {
+                top[pos] = top[pos - 1];
+                pos--;
+            }
+            top[pos] = id;
+        }
+
+        for (int i = 0; i < filled; i++) {
+            result.put(names.decode(top[i]), counts[top[i]]);
+        }
+        return result;
+    }
+
+    public String bookIsbn(int bookId) {
+        return books.decode(bookId);
+    }
+
+    public String borrowerId(int borrowerId) {
+        return borrowers.decode(borrowerId);
+    }
+
+    /**
+     * Maps each distinct string to a dense int id, in order of first appearance.
+     */
+    private static class Dictionary {
+        private HashMap<String, Integer> ids = new HashMap<>();
+        private String[] values = new String[16];
+        private int size;
+
+        int encode(String value) {
+            Integer id = ids.get(value);
+            if (id != null) return id;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size] = value;
+            ids.put(value, size);
+            return size++;
+        }
+
+        String decode(int id) {
+            if (id < 0 || id >= size) {
+                throw new IllegalArgumentException("Unknown id: " + id);
+            }
+            return values[id];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
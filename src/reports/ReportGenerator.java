@@ -2,18 +2,97 @@ package reports;
 
 import model.Book;
 import model.Borrower;
+import model.LoanStatus;
 import model.Transaction;
+import model.TransactionColumnStore;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import functionality.ApproximateActivity;
+import functionality.BorrowerRegistry;
+import functionality.LendingTracker;
+import utils.TopK;
 
 public class ReportGenerator {
     public void mostBorrowedBooks(List<Transaction> transactions) {
-        // TODO: Implement report for most borrowed books in the past month
-        System.out.println("\n--- Most Borrowed Books (Past 30 Days) ---");
-        Transaction temp = new Transaction("dummy", "dummy"); // just to call instance method
-        var topBooks = temp.mostBorrowedBooksLast30Days(transactions);
+        printTopBooks(Transaction.mostBorrowedBooksLast30Days(transactions), 30);
+    }
 
-        if (topBooks.isEmpty()) {
+    /**
+     * Same report computed from the tracker's columnar store: one pass over
+     * the borrow-day and book-id columns instead of the transaction objects.
+     */
+    public void mostBorrowedBooks(TransactionColumnStore columns) {
+        printTopBooks(Transaction.mostBorrowedBooksLast30Days(columns), 30);
+    }
+
+    /**
+     * Most active borrowers over the past 30 days and the number of loans in
+     * each status, from the columnar store: one pass over the borrow-day and
+     * borrower-id columns and one over the status column.
+     */
+    public void borrowingActivity(TransactionColumnStore columns) {
+        int fromDay = (int) LocalDate.now().minusDays(29).toEpochDay();
+        Map<String, Integer> topBorrowers = columns.topBorrowersSince(fromDay, 5);
+
+        System.out.println("\n--- Most Active Borrowers (Past 30 Days) ---");
+        if (topBorrowers.isEmpty()) {
             System.out.println("No borrowing activity in the past 30 days.");
+        } else {
+            topBorrowers.forEach((id, count) ->
+                System.out.println("ID: " + id + " | Loans: " + count));
+        }
+
+        System.out.println("\n--- Loans by Status ---");
+        int[] byStatus = columns.countByStatus();
+        for (LoanStatus status : LoanStatus.values()) {
+            System.out.println(status + ": " + byStatus[status.ordinal()]);
+        }
+    }
+
+    /**
+     * Same report from the tracker's sliding-window counts, with no scan at all.
+     */
+    public void mostBorrowedBooks(LendingTracker tracker) {
+        printTopBooks(tracker.getMostBorrowedBooks(), tracker.getPopularityWindowDays());
+    }
+
+    /**
+     * Approximate version for very large histories, from the tracker's
+     * bounded-memory sketches (see LendingTracker.enableApproximateCounts).
+     * Also lists the most active borrowers. Counts are upper bounds.
+     */
+    public void mostBorrowedBooksApproximate(LendingTracker tracker) {
+        ApproximateActivity activity = tracker.getApproximateActivity();
+        if (activity == null) {
+            System.out.println("Approximate counts are not enabled.");
+            return;
+        }
+        long today = LocalDate.now().toEpochDay();
+        int days = activity.getWindowDays();
+        long bound = activity.getErrorBound(today);
+
+        System.out.println("\n--- Most Borrowed Books (Past " + days + " Days, approximate) ---");
+        Map<String, Long> topBooks = activity.topBooks(today, 5);
+        if (topBooks.isEmpty()) {
+            System.out.println("No borrowing activity in the past " + days + " days.");
+            return;
+        }
+        topBooks.forEach((isbn, count) ->
+            System.out.println("ISBN: " + isbn + " | Times Borrowed: ~" + count));
+
+        System.out.println("\n--- Most Active Borrowers (Past " + days + " Days, approximate) ---");
+        activity.topBorrowers(today, 5).forEach((id, count) ->
+            System.out.println("ID: " + id + " | Loans: ~" + count));
+        System.out.println("Counts may be over by at most " + bound + " of "
+            + activity.getLoanCount(today) + " loans.");
+    }
+
+    private void printTopBooks(Map<String, Integer> topBooks, int days) {
+        System.out.println("\n--- Most Borrowed Books (Past " + days + " Days) ---");
+        if (topBooks.isEmpty()) {
+            System.out.println("No borrowing activity in the past " + days + " days.");
         } else {
             topBooks.forEach((isbn, count) ->
                 System.out.println("ISBN: " + isbn + " | Times Borrowed: " + count));
@@ -21,17 +100,33 @@ public class ReportGenerator {
     }
 
     public void highestFinesOwed(List<Borrower> borrowers) {
-        // TODO: Implement report for borrowers with highest fines
-        System.out.println("\n--- Top 5 Borrowers by Outstanding Fines ---");
+        // Bounded top-5 selection over a primitive fines array instead of a full sort
+        double[] fines = new double[borrowers.size()];
+        for (int i = 0; i < fines.length; i++) {
+            fines[i] = borrowers.get(i).getFinesOwed();
+        }
+        List<Borrower> top = new ArrayList<>();
+        for (int index : TopK.selectIndices(fines, 5)) {
+            top.add(borrowers.get(index));
+        }
+        printTopDebtors(top);
+    }
 
-        borrowers.stream()
-            .sorted((b1, b2) -> Double.compare(b2.getFinesOwed(), b1.getFinesOwed()))
-            .limit(5)
-            .forEach(b -> System.out.println(
-                "ID: " + b.getIdNumber() +
-                " | Name: " + b.getName() +
-                " | Fines Owed: GH₵" + b.getFinesOwed())
-            );
+    /**
+     * Same report read straight from the registry's fines leaderboard, which
+     * is kept ranked as fines are added: no pass over the borrowers at all.
+     */
+    public void highestFinesOwed(BorrowerRegistry registry) {
+        printTopDebtors(registry.getTopDebtors(5));
+    }
+
+    private void printTopDebtors(List<Borrower> top) {
+        System.out.println("\n--- Top 5 Borrowers by Outstanding Fines ---");
+        top.forEach(b -> System.out.println(
+            "ID: " + b.getIdNumber() +
+            " | Name: " + b.getName() +
+            " | Fines Owed: GH₵" + b.getFinesOwed())
+        );
     }
 
     public void categoryDistribution(List<Book> books) {
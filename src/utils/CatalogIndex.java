@@ -0,0 +1,542 @@
+package utils;
+
+import model.Book;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import datastructures.CompletionTrie;
+import datastructures.HashMap;
+import datastructures.PostingList;
+
+/**
+ * Inverted index over the catalogue: for each searchable field, every
+ * normalised word maps to a compressed posting list of the ids of the books
+ * containing it. A query is tokenised once and answered by intersecting or
+ * merging posting lists, so no book is lower-cased or scanned per query.
+ * Every field is also indexed by trigram (every run of three characters of
+ * the normalised text), so a fragment typed mid-word narrows to the books
+ * sharing all its trigrams and only those are checked with contains.
+ * Title and author words are also kept in a trie searched with a
+ * Levenshtein automaton, so misspelt query words can be matched to indexed
+ * words a couple of edits away.
+ * Kept up to date by BookInventory as books are added and removed.
+ * Removal only clears the book's id; queries skip cleared ids, and once
+ * they outnumber the live books the whole index is rebuilt with the live
+ * books renumbered from 0, so ids and posting lists stay proportional to
+ * the catalogue under any amount of add/remove churn.
+ */
+public class CatalogIndex {
+
+    public enum Field { TITLE, AUTHOR, CATEGORY, PUBLISHER }
+
+    private static final Field[] FIELDS = Field.values();
+    // Spell-checked through the term trie
+    private static final Field[] NAME_FIELDS = { Field.TITLE, Field.AUTHOR };
+
+    private HashMap<String, PostingList>[] postings; // one word -> books map per field
+    private HashMap<Long, PostingList>[] trigrams;   // packed trigram -> books, one map per field
+    private Book[] books;                            // id -> book, null once removed
+    private HashMap<String, Integer> idByIsbn;     // keyed by Book.isbnKey
+    private int nextId;
+    private int size;
+    private int staleIds; // removed books whose ids are still on posting lists
+    private CompletionTrie<String> terms; // title and author words, for typo-tolerant search
+
+    public CatalogIndex() {
+        books = new Book[16];
+        idByIsbn = new HashMap<>();
+        clearPostings();
+    }
+
+    private void clearPostings() {
+        postings = newFieldMaps();
+        for (int f = 0; f < FIELDS.length; f++) {
+            postings[f] = new HashMap<>();
+        }
+        trigrams = newFieldMaps();
+        for (int f = 0; f < FIELDS.length; f++) {
+            trigrams[f] = new HashMap<>();
+        }
+        terms = new CompletionTrie<>();
+    }
+
+    // One slot per Field, indexed by ordinal
+    @SuppressWarnings("unchecked")
+    private static <K> HashMap<K, PostingList>[] newFieldMaps() {
+        return (HashMap<K, PostingList>[]) new HashMap<?, ?>[FIELDS.length];
+    }
+
+    /**
+     * Indexes a book, replacing any indexed book with the same ISBN (ignoring case).
+     * Time complexity: O(w) for w words in the book's fields.
+     */
+    public void add(Book book) {
+        remove(book.getIsbn());
+        int id = nextId++;
+        if (id == books.length) {
+            books = Arrays.copyOf(books, books.length * 2);
+        }
+        books[id] = book;
+        idByIsbn.put(Book.isbnKey(book.getIsbn()), id);
+        size++;
+        addPostings(book, id);
+    }
+
+    private void addPostings(Book book, int id) {
+        for (Field field : FIELDS) {
+            HashMap<String, PostingList> index = postings[field.ordinal()];
+            for (String token : words(valueOf(book, field))) {
+                PostingList list = index.get(token);
+                if (list == null) {
+                    if (isNameField(field) && !isTerm(token)) {
+                        terms.insert(token, token);
+                    }
+                    list = new PostingList();
+                    index.put(token, list);
+                }
+                list.add(id); // ids only grow, so this is an append
+            }
+        }
+        for (Field field : FIELDS) {
+            HashMap<Long, PostingList> index = trigrams[field.ordinal()];
+            for (long trigram : trigramsOf(valueOf(book, field))) {
+                PostingList list = index.get(trigram);
+                if (list == null) {
+                    list = new PostingList();
+                    index.put(trigram, list);
+                }
+                list.add(id);
+            }
+        }
+    }
+
+    /**
+     * Removes the book with the given ISBN. Its id is cleared rather than
+     * taken off its posting lists, which are shared with many other books;
+     * see compact for when the lists are rebuilt.
+     * Time complexity: O(1), plus an amortised O(w) compaction share for a
+     * book of w words and trigrams.
+     * @return true if the book was indexed.
+     */
+    public boolean remove(String isbn) {
+        Integer id = idByIsbn.remove(Book.isbnKey(isbn));
+        if (id == null) return false;
+        books[id] = null;
+        size--;
+        if (++staleIds > size) {
+            compact();
+        }
+        return true;
+    }
+
+    /**
+     * Rebuilds every posting list, trigram list and the term trie from the
+     * live books, renumbered 0..size-1 in their current order. Runs once
+     * removed ids outnumber live books, so its cost is spread over at least
+     * as many removals as there are books left.
+     */
+    private void compact() {
+        Book[] live = new Book[Math.max(16, size * 2)];
+        int next = 0;
+        for (int id = 0; id < nextId; id++) {
+            if (books[id] != null) live[next++] = books[id];
+        }
+        books = live;
+        nextId = next;
+        staleIds = 0;
+        clearPostings();
+        for (int id = 0; id < nextId; id++) {
+            idByIsbn.put(Book.isbnKey(books[id].getIsbn()), id);
+            addPostings(books[id], id);
+        }
+    }
+
+    /**
+     * Books with the fragment in any of the given fields, ignoring case and
+     * accents, as String.contains would find it in the normalised text.
+     * Candidates come from the intersection of the fragment's trigram
+     * posting lists; only those are compared against the text.
+     * @return the matches in id order, or null if the fragment is shorter than
+     *         three characters and cannot be answered from the index.
+     */
+    public List<Book> searchSubstring(String fragment, Field... fields) {
+        int[] ids = matchSubstring(fragment, fields);
+        return ids == null ? null : booksFor(ids);
+    }
+
+    /**
+     * Ids of the books searchSubstring finds, ascending, or null for a
+     * fragment under three characters; valid until the next add or remove.
+     */
+    public int[] matchSubstring(String fragment, Field... fields) {
+        String lower = TextKeys.normalize(fragment);
+        int[] result = new int[0];
+        for (Field field : fields) {
+            int[] ids = substringIds(lower, field);
+            if (ids == null) return null;
+            result = PostingList.union(result, ids);
+        }
+        return result;
+    }
+
+    // Ascending ids of live books whose field contains the normalised fragment;
+    // null if it is shorter than a trigram
+    private int[] substringIds(String lower, Field field) {
+        HashMap<Long, PostingList> index = trigrams[field.ordinal()];
+        long[] grams = trigramsOf(lower);
+        if (grams.length == 0) return null;
+
+        PostingList[] lists = new PostingList[grams.length];
+        for (int g = 0; g < grams.length; g++) {
+            lists[g] = index.get(grams[g]);
+            if (lists[g] == null) return new int[0];
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size(), b.size()));
+        int[] candidates = lists[0].toArray();
+        for (int g = 1; g < lists.length && candidates.length > 0; g++) {
+            candidates = PostingList.intersect(candidates, lists[g].toArray());
+        }
+
+        // A three-character fragment is its own trigram: every candidate matches
+        boolean verify = lower.length() > 3;
+        int n = 0;
+        for (int id : candidates) {
+            if (books[id] == null) continue; // removed
+            if (!verify || valueOf(books[id], field).contains(lower)) {
+                candidates[n++] = id;
+            }
+        }
+        return n == candidates.length ? candidates : Arrays.copyOf(candidates, n);
+    }
+
+    /**
+     * Books matching every query word in the given fields (TITLE and/or
+     * AUTHOR), where a word not in the index is replaced by the indexed words
+     * closest to it, at most maxDistance edits away (see similarTerms).
+     * @return the matches in id order; empty if some word has no close match.
+     */
+    public List<Book> searchFuzzy(String query, int maxDistance, Field... fields) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) return new ArrayList<>();
+
+        int[][] perWord = new int[words.size()][];
+        for (int w = 0; w < words.size(); w++) {
+            List<String> matches = closestTerms(words.get(w), maxDistance, fields);
+            int[] ids = new int[0];
+            for (String term : matches) {
+                for (Field field : fields) {
+                    PostingList list = postings[field.ordinal()].get(term);
+                    if (list != null) {
+                        ids = PostingList.union(ids, list.toArray());
+                    }
+                }
+            }
+            if (ids.length == 0) return new ArrayList<>();
+            perWord[w] = ids;
+        }
+
+        Arrays.sort(perWord, (a, b) -> Integer.compare(a.length, b.length));
+        int[] result = perWord[0];
+        for (int w = 1; w < perWord.length && result.length > 0; w++) {
+            result = PostingList.intersect(result, perWord[w]);
+        }
+        return booksFor(live(result));
+    }
+
+    /**
+     * The query with each word not found in any field replaced by its
+     * closest title or author word, e.g. "algoritms" -> "algorithms".
+     * @return the corrected query, or null if nothing needed correcting or
+     *         some word has no close match.
+     */
+    public String didYouMean(String query, int maxDistance) {
+        List<String> words = tokenize(query);
+        boolean corrected = false;
+        StringBuilder suggestion = new StringBuilder();
+        for (String word : words) {
+            String replacement = word;
+            if (closestTerms(word, 0, FIELDS).isEmpty()) {
+                List<String> similar = similarTerms(word, maxDistance);
+                if (similar.isEmpty()) return null;
+                replacement = similar.get(0);
+                corrected = true;
+            }
+            if (suggestion.length() > 0) suggestion.append(' ');
+            suggestion.append(replacement);
+        }
+        return corrected ? suggestion.toString() : null;
+    }
+
+    /**
+     * Title and author words within the allowed edits of the word, closest
+     * first, then the most widely used. Words of up to two characters allow
+     * no edits and up to five characters one edit, so short words do not
+     * match half the dictionary; longer ones allow maxDistance.
+     */
+    public List<String> similarTerms(String word, int maxDistance) {
+        return new ArrayList<>(similar(word, maxDistance).keySet());
+    }
+
+    // similarTerms mapped to their distances, in the same order
+    private Map<String, Integer> similar(String word, int maxDistance) {
+        String lower = TextKeys.normalize(word);
+        int allowed = Math.min(maxDistance, lower.length() <= 2 ? 0 : lower.length() <= 5 ? 1 : 2);
+        Map<String, Integer> within = terms.keysWithin(lower, allowed);
+        List<String> similar = new ArrayList<>(within.keySet());
+        similar.sort((a, b) -> {
+            int byDistance = Integer.compare(within.get(a), within.get(b));
+            return byDistance != 0 ? byDistance : Integer.compare(usage(b), usage(a));
+        });
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (String term : similar) {
+            // Words only removed books used stay in the trie until the next compaction
+            if (hasLiveBook(term, NAME_FIELDS)) result.put(term, within.get(term));
+        }
+        return result;
+    }
+
+    // The word itself if indexed in the fields, else its closest indexed words
+    private List<String> closestTerms(String word, int maxDistance, Field... fields) {
+        List<String> result = new ArrayList<>();
+        if (hasLiveBook(word, fields)) {
+            result.add(word);
+            return result;
+        }
+        int best = Integer.MAX_VALUE;
+        for (Map.Entry<String, Integer> match : similar(word, maxDistance).entrySet()) {
+            String term = match.getKey();
+            if (!hasLiveBook(term, fields)) continue;
+            int d = match.getValue();
+            if (d > best) break;
+            best = d;
+            result.add(term);
+        }
+        return result;
+    }
+
+    // Whether a book not yet removed has the word in one of the fields
+    private boolean hasLiveBook(String word, Field... fields) {
+        for (Field field : fields) {
+            PostingList list = postings[field.ordinal()].get(word);
+            if (list == null) continue;
+            if (staleIds == 0) return true;
+            for (int id : list.toArray()) {
+                if (books[id] != null) return true;
+            }
+        }
+        return false;
+    }
+
+    // The ids of books not yet removed; filters the given array in place
+    private int[] live(int[] ids) {
+        if (staleIds == 0) return ids;
+        int n = 0;
+        for (int id : ids) {
+            if (books[id] != null) ids[n++] = id;
+        }
+        return n == ids.length ? ids : Arrays.copyOf(ids, n);
+    }
+
+    private static boolean isNameField(Field field) {
+        return field == Field.TITLE || field == Field.AUTHOR;
+    }
+
+    private boolean isTerm(String word) {
+        return postings[Field.TITLE.ordinal()].get(word) != null
+                || postings[Field.AUTHOR.ordinal()].get(word) != null;
+    }
+
+    // Books whose title or author uses the word
+    private int usage(String word) {
+        int count = 0;
+        for (Field field : NAME_FIELDS) {
+            PostingList list = postings[field.ordinal()].get(word);
+            if (list != null) count += list.size();
+        }
+        return count;
+    }
+
+    // Distinct trigrams of normalised text, three chars packed per long
+    private static long[] trigramsOf(String text) {
+        if (text.length() < 3) return new long[0];
+        long[] grams = new long[text.length() - 2];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+        }
+        Arrays.sort(grams);
+        int n = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (n == 0 || grams[i] != grams[n - 1]) grams[n++] = grams[i];
+        }
+        return Arrays.copyOf(grams, n);
+    }
+
+    /**
+     * Books matching the query's words in any of the given fields.
+     * @param matchAll true to require every word (AND), false for any word (OR).
+     */
+    public List<Book> search(String query, boolean matchAll, Field... fields) {
+        return booksFor(matchIds(query, matchAll, fields));
+    }
+
+    /**
+     * Ids of the books matching the query, ascending. A word matches a book
+     * if it appears as a whole word in at least one of the fields.
+     * Ids are renumbered when the index compacts, so they are only valid
+     * until the next add or remove.
+     * Time complexity: proportional to the posting lists touched.
+     */
+    public int[] matchIds(String query, boolean matchAll, Field... fields) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) return new int[0];
+
+        int[][] perWord = new int[words.size()][];
+        for (int w = 0; w < words.size(); w++) {
+            int[] ids = new int[0];
+            for (Field field : fields) {
+                PostingList list = postings[field.ordinal()].get(words.get(w));
+                if (list != null) {
+                    ids = PostingList.union(ids, list.toArray());
+                }
+            }
+            if (matchAll && ids.length == 0) return ids;
+            perWord[w] = ids;
+        }
+
+        if (!matchAll) {
+            int[] result = perWord[0];
+            for (int w = 1; w < perWord.length; w++) {
+                result = PostingList.union(result, perWord[w]);
+            }
+            return live(result);
+        }
+
+        // Intersect the shortest lists first so intermediate results stay small
+        Arrays.sort(perWord, (a, b) -> Integer.compare(a.length, b.length));
+        int[] result = perWord[0];
+        for (int w = 1; w < perWord.length && result.length > 0; w++) {
+            result = PostingList.intersect(result, perWord[w]);
+        }
+        return live(result);
+    }
+
+    /**
+     * The books with the given ids, skipping removed ones.
+     */
+    public List<Book> booksFor(int[] ids) {
+        List<Book> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            if (books[id] != null) result.add(books[id]);
+        }
+        return result;
+    }
+
+    /**
+     * Every indexed book, in the order they were indexed.
+     */
+    public List<Book> getAllBooks() {
+        List<Book> result = new ArrayList<>(size);
+        for (int id = 0; id < nextId; id++) {
+            if (books[id] != null) result.add(books[id]);
+        }
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Distinct words indexed for the field, including words only removed
+     * books used until the next compaction.
+     */
+    public int vocabularySize(Field field) {
+        return postings[field.ordinal()].size();
+    }
+
+    /**
+     * Bytes taken by the compressed word posting lists of the field.
+     */
+    public long postingBytes(Field field) {
+        long total = 0;
+        for (PostingList list : postings[field.ordinal()].valuesArray(new PostingList[0])) {
+            total += list.byteSize();
+        }
+        return total;
+    }
+
+    /**
+     * Distinct trigrams indexed for the field.
+     */
+    public int trigramCount(Field field) {
+        return trigrams[field.ordinal()].size();
+    }
+
+    /**
+     * Bytes taken by the compressed trigram posting lists of the field.
+     */
+    public long trigramPostingBytes(Field field) {
+        long total = 0;
+        for (PostingList list : trigrams[field.ordinal()].valuesArray(new PostingList[0])) {
+            total += list.byteSize();
+        }
+        return total;
+    }
+
+    /**
+     * One line per field: vocabulary and trigram counts with their posting list sizes.
+     * Posting bytes are the encoded ids only, not map or object overhead.
+     */
+    public String getMemoryReport() {
+        StringBuilder report = new StringBuilder();
+        for (Field field : FIELDS) {
+            report.append(String.format("%-9s words: %d (%.1f KB postings)",
+                    field, vocabularySize(field), postingBytes(field) / 1024.0));
+            report.append(String.format(" | trigrams: %d (%.1f KB postings)",
+                    trigramCount(field), trigramPostingBytes(field) / 1024.0));
+            report.append(System.lineSeparator());
+        }
+        return report.toString();
+    }
+
+    // The field's normalised text (see TextKeys), cached on the book
+    private static String valueOf(Book book, Field field) {
+        switch (field) {
+            case TITLE: return book.getNormalizedTitle();
+            case AUTHOR: return book.getNormalizedAuthor();
+            case CATEGORY: return book.getNormalizedCategory();
+            default: return book.getNormalizedPublisher();
+        }
+    }
+
+    /**
+     * Splits text into normalised words of letters and digits (lower case,
+     * no accents); each distinct word once.
+     */
+    public static List<String> tokenize(String text) {
+        if (text == null) return new ArrayList<>();
+        return words(TextKeys.normalize(text));
+    }
+
+    // tokenize for text that is already normalised
+    private static List<String> words(String text) {
+        List<String> tokens = new ArrayList<>();
+
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String token = text.substring(start, i);
+                if (!tokens.contains(token)) tokens.add(token);
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
@@ -2,6 +2,7 @@ package utils;
 
 import java.io.*;
 import java.util.*;
+import java.util.function.Consumer;
 import model.Book;
 import model.Borrower;
 import model.Transaction;
@@ -25,22 +26,36 @@ public class FileHandler {
 
     public List<Book> loadBooks() {
         List<Book> books = new ArrayList<>();
+        forEachBook(books::add);
+        return books;
+    }
+
+    /**
+     * Streams each parsed book to the consumer without building a list.
+     * @return the number of books read.
+     */
+    public int forEachBook(Consumer<Book> consumer) {
+        int count = 0;
         File file = new File(BOOKS_FILE);
-        if (!file.exists()) return books;
+        if (!file.exists()) return count;
 
         try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
             String line;
             while ((line = reader.readLine()) != null) {
+                Book book;
                 try {
-                    books.add(Book.fromFileString(line));
+                    book = Book.fromFileString(line);
                 } catch (Exception e) {
                     System.out.println("Invalid book line skipped: " + line);
+                    continue;
                 }
+                consumer.accept(book);
+                count++;
             }
         } catch (IOException e) {
             System.out.println("Error loading books: " + e.getMessage());
         }
-        return books;
+        return count;
     }
 
     // ===== BORROWERS =====
@@ -57,36 +72,40 @@ public class FileHandler {
 
     public List<Borrower> loadBorrowers() {
         List<Borrower> borrowers = new ArrayList<>();
+        forEachBorrower(borrowers::add);
+        return borrowers;
+    }
+
+    /**
+     * Streams each parsed borrower to the consumer without building a list.
+     * @return the number of borrowers read.
+     */
+    public int forEachBorrower(Consumer<Borrower> consumer) {
+        int count = 0;
         File file = new File(BORROWERS_FILE);
-        if (!file.exists()) return borrowers;
+        if (!file.exists()) return count;
 
         try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
             String line;
             while ((line = reader.readLine()) != null) {
+                Borrower borrower;
                 try {
-                    borrowers.add(Borrower.fromFileString(line));
+                    borrower = Borrower.fromFileString(line);
                 } catch (Exception e) {
                     System.out.println("Invalid borrower line skipped: " + line);
+                    continue;
                 }
+                consumer.accept(borrower);
+                count++;
             }
         } catch (IOException e) {
             System.out.println("Error loading borrowers: " + e.getMessage());
         }
-        return borrowers;
+        return count;
     }
 
     // ===== TRANSACTIONS =====
 
-    public void saveTransactions(List<Transaction> transactions) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(TRANSACTIONS_FILE))) {
-            for (Transaction txn : transactions) {
-                writer.println(txn.toFileString());
-            }
-        } catch (IOException e) {
-            System.out.println("Error saving transactions: " + e.getMessage());
-        }
-    }
-
     public List<Transaction> loadTransactions() {
         List<Transaction> transactions = new ArrayList<>();
         File file = new File(TRANSACTIONS_FILE);
@@ -95,6 +114,7 @@ public class FileHandler {
         try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
             String line;
             while ((line = reader.readLine()) != null) {
+                if (line.startsWith("#")) continue; // snapshot header written by LendingTracker.checkpoint
                 try {
                     transactions.add(Transaction.fromFileString(line));
                 } catch (Exception e) {
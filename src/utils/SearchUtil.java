@@ -5,22 +5,29 @@ import model.Book;
 import java.util.ArrayList;
 import java.util.List;
 
+import datastructures.PostingList;
+
 public class SearchUtil {
 
+    // Most edits allowed between a misspelt word and a suggestion
+    public static final int MAX_TYPO_DISTANCE = 2;
+
     /**
-     * Binary Search by Title (Assumes list is sorted by title)
+     * Binary Search by Title (Assumes list is sorted by title with SortUtil.mergeSortByTitle)
+     * Compares byte sort keys; case and accents are ignored.
      * Time: O(log n), Space: O(1)
      */
     public static Book binarySearchByTitle(List<Book> books, String title) {
         if (books == null || books.isEmpty() || title == null) return null;
 
+        byte[] key = TextKeys.sortKey(title);
         int left = 0;
         int right = books.size() - 1;
 
         while (left <= right) {
             int mid = (left + right) / 2;
             Book midBook = books.get(mid);
-            int comparison = midBook.getTitle().compareToIgnoreCase(title);
+            int comparison = TextKeys.compare(midBook.getTitleSortKey(), key);
 
             if (comparison == 0) return midBook;
             if (comparison < 0) left = mid + 1;
@@ -46,6 +53,10 @@ public class SearchUtil {
         return null;
     }
 
+    // The linear searches below match the keyword, normalised once, against
+    // each book's cached normalised fields (see TextKeys): case and accents
+    // are ignored and nothing is allocated per book.
+
     /**
      * Linear Search by Partial Author Name
      * Returns list of all matching books
@@ -55,8 +66,9 @@ public class SearchUtil {
 
         if (books == null || books.isEmpty() || authorKeyword == null) return result;
 
+        String keyword = TextKeys.normalize(authorKeyword);
         for (Book book : books) {
-            if (book.getAuthor().toLowerCase().contains(authorKeyword.toLowerCase())) {
+            if (book.getNormalizedAuthor().contains(keyword)) {
                 result.add(book);
             }
         }
@@ -71,8 +83,9 @@ public class SearchUtil {
         List<Book> result = new ArrayList<>();
         if (books == null || books.isEmpty() || publisherKeyword == null) return result;
 
+        String keyword = TextKeys.normalize(publisherKeyword);
         for (Book book : books) {
-            if (book.getPublisher().toLowerCase().contains(publisherKeyword.toLowerCase())) {
+            if (book.getNormalizedPublisher().contains(keyword)) {
                 result.add(book);
             }
         }
@@ -87,8 +100,9 @@ public class SearchUtil {
         List<Book> result = new ArrayList<>();
         if (books == null || books.isEmpty() || categoryKeyword == null) return result;
 
+        String keyword = TextKeys.normalize(categoryKeyword);
         for (Book book : books) {
-            if (book.getCategory().toLowerCase().contains(categoryKeyword.toLowerCase())) {
+            if (book.getNormalizedCategory().contains(keyword)) {
                 result.add(book);
             }
         }
@@ -119,13 +133,13 @@ public class SearchUtil {
         List<Book> result = new ArrayList<>();
         if (books == null || books.isEmpty() || keyword == null) return result;
 
-        String lowerKeyword = keyword.toLowerCase();
+        String lowerKeyword = TextKeys.normalize(keyword);
 
         for (Book book : books) {
-            if (book.getTitle().toLowerCase().contains(lowerKeyword)
-                    || book.getAuthor().toLowerCase().contains(lowerKeyword)
-                    || book.getCategory().toLowerCase().contains(lowerKeyword)
-                    || book.getPublisher().toLowerCase().contains(lowerKeyword)) {
+            if (book.getNormalizedTitle().contains(lowerKeyword)
+                    || book.getNormalizedAuthor().contains(lowerKeyword)
+                    || book.getNormalizedCategory().contains(lowerKeyword)
+                    || book.getNormalizedPublisher().contains(lowerKeyword)) {
                 result.add(book);
             }
         }
@@ -140,9 +154,11 @@ public class SearchUtil {
         List<Book> result = new ArrayList<>();
         if (books == null || books.isEmpty() || titleKeyword == null || authorKeyword == null) return result;
 
+        String title = TextKeys.normalize(titleKeyword);
+        String author = TextKeys.normalize(authorKeyword);
         for (Book book : books) {
-            if (book.getTitle().toLowerCase().contains(titleKeyword.toLowerCase())
-                    && book.getAuthor().toLowerCase().contains(authorKeyword.toLowerCase())) {
+            if (book.getNormalizedTitle().contains(title)
+                    && book.getNormalizedAuthor().contains(author)) {
                 result.add(book);
             }
         }
@@ -164,8 +180,9 @@ public class SearchUtil {
         List<Book> result = new ArrayList<>();
         if (books == null || books.isEmpty() || keyword == null) return result;
 
+        String fragment = TextKeys.normalize(keyword);
         for (Book book : books) {
-            if (book.getTitle().toLowerCase().contains(keyword.toLowerCase())) {
+            if (book.getNormalizedTitle().contains(fragment)) {
                 result.add(book);
             }
         }
@@ -173,6 +190,125 @@ public class SearchUtil {
         return result;
     }
 
+    // === Indexed searches (see CatalogIndex) ===
+    // Each finds the same books as its List version above. Substring
+    // searches go through the trigram index; fragments under three
+    // characters have no trigram and scan linearly. When the index finds
+    // nothing, misspelt words are matched to titles and authors within
+    // MAX_TYPO_DISTANCE edits.
+
+    /**
+     * Keyword search through the trigram index: the keyword may appear
+     * anywhere in the title, author, category or publisher ("fict" finds
+     * Fiction), as in keywordSearch(List, String).
+     * Time: proportional to the posting lists of the keyword's trigrams
+     */
+    public static List<Book> keywordSearch(CatalogIndex index, String keyword) {
+        if (index == null || keyword == null) return new ArrayList<>();
+        List<Book> result = index.searchSubstring(keyword,
+                CatalogIndex.Field.TITLE, CatalogIndex.Field.AUTHOR,
+                CatalogIndex.Field.CATEGORY, CatalogIndex.Field.PUBLISHER);
+        if (result == null) return keywordSearch(index.getAllBooks(), keyword);
+        return result.isEmpty()
+                ? index.searchFuzzy(keyword, MAX_TYPO_DISTANCE, CatalogIndex.Field.TITLE, CatalogIndex.Field.AUTHOR)
+                : result;
+    }
+
+    /**
+     * Author search through the inverted index.
+     */
+    public static List<Book> searchByAuthor(CatalogIndex index, String authorKeyword) {
+        if (index == null || authorKeyword == null) return new ArrayList<>();
+        List<Book> result = index.search(authorKeyword, true, CatalogIndex.Field.AUTHOR);
+        if (result.isEmpty()) result = searchByPartialAuthor(index, authorKeyword);
+        return result.isEmpty()
+                ? index.searchFuzzy(authorKeyword, MAX_TYPO_DISTANCE, CatalogIndex.Field.AUTHOR)
+                : result;
+    }
+
+    /**
+     * Substring search on authors through the trigram index; same matches as
+     * searchByAuthor(List, String). Fragments under three characters scan linearly.
+     */
+    public static List<Book> searchByPartialAuthor(CatalogIndex index, String keyword) {
+        if (index == null || keyword == null) return new ArrayList<>();
+        List<Book> result = index.searchSubstring(keyword, CatalogIndex.Field.AUTHOR);
+        return result != null ? result : searchByAuthor(index.getAllBooks(), keyword);
+    }
+
+    /**
+     * Substring search on titles through the trigram index; same matches as
+     * searchByPartialTitle(List, String). Fragments under three characters scan linearly.
+     */
+    public static List<Book> searchByPartialTitle(CatalogIndex index, String keyword) {
+        if (index == null || keyword == null) return new ArrayList<>();
+        List<Book> result = index.searchSubstring(keyword, CatalogIndex.Field.TITLE);
+        return result != null ? result : searchByPartialTitle(index.getAllBooks(), keyword);
+    }
+
+    /**
+     * Suggest books by partial title through the trigram index, or by titles
+     * within MAX_TYPO_DISTANCE edits of a misspelling ("Algoritms").
+     */
+    public static List<Book> suggestByTitle(CatalogIndex index, String titleKeyword) {
+        List<Book> result = searchByPartialTitle(index, titleKeyword);
+        return result.isEmpty()
+                ? index.searchFuzzy(titleKeyword, MAX_TYPO_DISTANCE, CatalogIndex.Field.TITLE)
+                : result;
+    }
+
+    /**
+     * Exact title lookup by binary search (list sorted by title), falling
+     * back to suggestByTitle when there is no such title.
+     * @return the book with that title, or the suggestions; empty if neither.
+     */
+    public static List<Book> findByTitle(List<Book> sortedByTitle, CatalogIndex index, String title) {
+        Book exact = binarySearchByTitle(sortedByTitle, title);
+        if (exact != null) {
+            List<Book> result = new ArrayList<>();
+            result.add(exact);
+            return result;
+        }
+        return title == null ? new ArrayList<>() : suggestByTitle(index, title);
+    }
+
+    /**
+     * The query with misspelt words corrected against titles and authors, or null.
+     */
+    public static String didYouMean(CatalogIndex index, String query) {
+        if (index == null || query == null) return null;
+        return index.didYouMean(query, MAX_TYPO_DISTANCE);
+    }
+
+    /**
+     * Substring search on publishers through the trigram index; same matches
+     * as searchByPublisher(List, String).
+     */
+    public static List<Book> searchByPublisher(CatalogIndex index, String publisherKeyword) {
+        if (index == null || publisherKeyword == null) return new ArrayList<>();
+        List<Book> result = index.searchSubstring(publisherKeyword, CatalogIndex.Field.PUBLISHER);
+        return result != null ? result : searchByPublisher(index.getAllBooks(), publisherKeyword);
+    }
+
+    /**
+     * Combined title and author search through the trigram index; same
+     * matches as searchByTitleAndAuthor(List, String, String). A fragment
+     * under three characters is checked only against the other's matches.
+     */
+    public static List<Book> searchByTitleAndAuthor(CatalogIndex index, String titleKeyword, String authorKeyword) {
+        if (index == null || titleKeyword == null || authorKeyword == null) return new ArrayList<>();
+        int[] titles = index.matchSubstring(titleKeyword, CatalogIndex.Field.TITLE);
+        int[] authors = index.matchSubstring(authorKeyword, CatalogIndex.Field.AUTHOR);
+        if (titles == null && authors == null) {
+            return searchByTitleAndAuthor(index.getAllBooks(), titleKeyword, authorKeyword);
+        }
+        if (titles == null || authors == null) {
+            List<Book> candidates = index.booksFor(titles == null ? authors : titles);
+            return searchByTitleAndAuthor(candidates, titleKeyword, authorKeyword);
+        }
+        return index.booksFor(PostingList.intersect(titles, authors));
+    }
+
     /**
      * Justification: Binary vs Linear Search
      *
@@ -9,6 +9,8 @@ public class SortUtil {
 
     /**
      * Merge Sort by Book Title (Alphabetical)
+     * Compares the books' cached sort keys (ignoring case and accents), so no
+     * text is folded during the sort.
      * Time: O(n log n), Space: O(n)
      */
     public static void mergeSortByTitle(List<Book> books) {
@@ -28,7 +30,7 @@ public class SortUtil {
         int i = 0, j = 0, k = 0;
 
         while (i < left.size() && j < right.size()) {
-            if (left.get(i).getTitle().compareToIgnoreCase(right.get(j).getTitle()) <= 0) {
+            if (TextKeys.compare(left.get(i).getTitleSortKey(), right.get(j).getTitleSortKey()) <= 0) {
                 books.set(k++, left.get(i++));
             } else {
                 books.set(k++, right.get(j++));
@@ -71,7 +73,7 @@ public class SortUtil {
             Book key = books.get(i);
             int j = i - 1;
 
-            while (j >= 0 && books.get(j).getAuthor().compareToIgnoreCase(key.getAuthor()) > 0) {
+            while (j >= 0 && TextKeys.compare(books.get(j).getAuthorSortKey(), key.getAuthorSortKey()) > 0) {
                 books.set(j + 1, books.get(j));
                 j--;
             }
@@ -104,10 +106,10 @@ public class SortUtil {
             Book b1 = left.get(i);
             Book b2 = right.get(j);
 
-            int categoryCompare = b1.getCategory().compareToIgnoreCase(b2.getCategory());
-            int titleCompare = b1.getTitle().compareToIgnoreCase(b2.getTitle());
+            int categoryCompare = TextKeys.compare(b1.getCategorySortKey(), b2.getCategorySortKey());
 
-            if (categoryCompare < 0 || (categoryCompare == 0 && titleCompare <= 0)) {
+            if (categoryCompare < 0
+                    || (categoryCompare == 0 && TextKeys.compare(b1.getTitleSortKey(), b2.getTitleSortKey()) <= 0)) {
                 books.set(k++, b1);
                 i++;
             } else {
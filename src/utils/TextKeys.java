@@ -0,0 +1,62 @@
+package utils;
+
+import java.text.Collator;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalised forms of text for searching and sorting: case-folded and
+ * accent-stripped, so "Émile" and "emile" match, plus a byte sort key from
+ * the default locale's collator, so sorting follows the alphabet rather than
+ * code points. Book caches these for its fields.
+ */
+public class TextKeys {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    // Primary strength: case and accents do not affect the order, as in normalize
+    private static final Collator COLLATOR = Collator.getInstance();
+
+    static {
+        COLLATOR.setStrength(Collator.PRIMARY);
+        COLLATOR.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
+    }
+
+    /**
+     * Lower-cased (locale-independent) with accents removed.
+     * ASCII text, the common case, is only lower-cased; if it is already
+     * lower case the same String is returned.
+     * Time: O(n)
+     */
+    public static String normalize(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < lower.length(); i++) {
+            if (lower.charAt(i) >= 0x80) {
+                String decomposed = Normalizer.normalize(lower, Normalizer.Form.NFD);
+                return COMBINING_MARKS.matcher(decomposed).replaceAll("");
+            }
+        }
+        return lower;
+    }
+
+    /**
+     * The collation key of the text as bytes, whose unsigned order (see
+     * compare) is the collator's order: "émile" sorts with "emile" between
+     * "eagle" and "zola", not after "z" as its code points would. Keys ignore
+     * case and accents, so a search key matches a title differing only in those.
+     * The collator synchronises internally, so this is safe to call from
+     * several threads, but it is far slower than normalize; cache the result.
+     */
+    public static byte[] sortKey(String text) {
+        return COLLATOR.getCollationKey(text).toByteArray();
+    }
+
+    /**
+     * Compares two sort keys as unsigned bytes.
+     */
+    public static int compare(byte[] a, byte[] b) {
+        return Arrays.compareUnsigned(a, b);
+    }
+}
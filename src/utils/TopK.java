@@ -0,0 +1,103 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import datastructures.PriorityQueue;
+
+public class TopK {
+
+    /**
+     * The k largest items under the comparator, largest first, using a
+     * bounded min-heap of size k instead of sorting everything.
+     * Time: O(n log k), Space: O(k)
+     */
+    public static <T> List<T> select(Iterable<T> items, int k, Comparator<T> comparator) {
+        List<T> result = new ArrayList<>();
+        if (k <= 0) return result;
+
+        PriorityQueue<T> heap = new PriorityQueue<>(comparator);
+        for (T item : items) {
+            if (heap.size() < k) {
+                heap.offer(item);
+            } else if (comparator.compare(item, heap.peek()) > 0) {
+                heap.poll();
+                heap.offer(item);
+            }
+        }
+
+        while (!heap.isEmpty()) {
+            result.add(heap.poll());
+        }
+        // Polled smallest first
+        for (int i = 0, j = result.size() - 1; i < j; i++, j--) {
+            T tmp = result.get(i);
+            result.set(i, result.get(j));
+            result.set(j, tmp);
+        }
+        return result;
+    }
+
+    /**
+     * Indices of the k largest values, largest first; ties keep the lower index first.
+     * Works on the primitive array directly with an int heap, so nothing is boxed.
+     * Time: O(n log k), Space: O(k)
+     */
+    public static int[] selectIndices(double[] values, int k) {
+        int size = Math.max(0, Math.min(k, values.length));
+        int[] heap = new int[size]; // min-heap of indices, "smallest" = lowest rank
+        int filled = 0;
+
+        for (int i = 0; i < values.length && size > 0; i++) {
+            if (filled < size) {
+                heap[filled] = i;
+                siftUp(heap, filled++, values);
+            } else if (ranksAbove(values, i, heap[0])) {
+                heap[0] = i;
+                siftDown(heap, 0, filled, values);
+            }
+        }
+
+        // Pop the heap from the back to get largest first
+        int[] result = new int[filled];
+        for (int n = filled; n > 0; n--) {
+            result[n - 1] = heap[0];
+            heap[0] = heap[n - 1];
+            siftDown(heap, 0, n - 1, values);
+        }
+        return result;
+    }
+
+    // Whether index a ranks above index b: higher value, or same value and lower index
+    private static boolean ranksAbove(double[] values, int a, int b) {
+        int byValue = Double.compare(values[a], values[b]);
+        return byValue > 0 || (byValue == 0 && a < b);
+    }
+
+    private static void siftUp(int[] heap, int index, double[] values) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (!ranksAbove(values, heap[parent], heap[index])) break;
+            swap(heap, index, parent);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int index, int size, double[] values) {
+        while (true) {
+            int left = 2 * index + 1, right = left + 1, lowest = index;
+            if (left < size && ranksAbove(values, heap[lowest], heap[left])) lowest = left;
+            if (right < size && ranksAbove(values, heap[lowest], heap[right])) lowest = right;
+            if (lowest == index) break;
+            swap(heap, index, lowest);
+            index = lowest;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int tmp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = tmp;
+    }
+}
@@ -0,0 +1,407 @@
+package utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log on a single long-lived FileChannel.
+ *
+ * Record layout: [int payload length][long sequence][int CRC32 of sequence + payload][payload UTF-8].
+ *
+ * Concurrent appends are group-committed: the first appender to find no
+ * flush in progress writes every pending record in one channel write (and
+ * one fsync, under EVERY_RECORD) while later appenders queue up behind it.
+ * Batching needs appenders on several threads; a single thread appending
+ * in turn (as LendingTracker does) commits one record per write and fsync,
+ * and the batch statistics then stay at 1.
+ * On open the log is scanned, and a torn or corrupt tail left by a crash is
+ * cut off before new records are appended.
+ */
+public class WriteAheadLog implements Closeable {
+
+    /**
+     * When appended records are forced to stable storage.
+     */
+    public enum SyncPolicy {
+        /** fsync before append returns; durable but slowest. */
+        EVERY_RECORD,
+        /** fsync in the background every syncIntervalMillis; may lose that window on power loss. */
+        INTERVAL,
+        /** never fsync explicitly; the OS flushes when it chooses. */
+        OS
+    }
+
+    private static final int HEADER_SIZE = 4 + 8 + 4;
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final SyncPolicy policy;
+    private final ScheduledExecutorService syncer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition committed = lock.newCondition();
+    private List<ByteBuffer> pending = new ArrayList<>();
+    private boolean flushing;
+    private long nextSequence;
+    private long committedSequence;
+    private volatile boolean dirty;
+    private IOException flushFailure;
+
+    // Commit statistics
+    private long commitCount;
+    private long recordCount;
+    private long totalCommitNanos;
+    private long lastCommitNanos;
+    private int lastBatchSize;
+    private int maxBatchSize;
+
+    public WriteAheadLog(Path path, SyncPolicy policy, long syncIntervalMillis) throws IOException {
+        this.path = path;
+        this.policy = policy;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long validEnd = scan(Long.MAX_VALUE, null);
+        if (validEnd < channel.size()) {
+            channel.truncate(validEnd); // discard a torn final record
+        }
+        channel.position(validEnd);
+        committedSequence = nextSequence;
+
+        if (policy == SyncPolicy.INTERVAL) {
+            if (syncIntervalMillis <= 0) {
+                throw new IllegalArgumentException("Sync interval must be positive: " + syncIntervalMillis);
+            }
+            syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "wal-sync");
+                t.setDaemon(true);
+                return t;
+            });
+            syncer.scheduleWithFixedDelay(this::syncIfDirty, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            syncer = null;
+        }
+    }
+
+    /**
+     * Appends one record and returns once it is committed under the sync policy.
+     * @return the record's sequence number.
+     */
+    public long append(String payload) throws IOException {
+        byte[] data = payload.getBytes(StandardCharsets.UTF_8);
+        if (data.length > MAX_RECORD_SIZE) {
+            throw new IllegalArgumentException("Record too large: " + data.length + " bytes");
+        }
+
+        lock.lock();
+        try {
+            long sequence = ++nextSequence;
+            pending.add(frame(sequence, data));
+
+            while (committedSequence < sequence) {
+                if (flushFailure != null) throw flushFailure;
+                if (flushing) {
+                    committed.awaitUninterruptibly();
+                    continue;
+                }
+
+                // Become the leader for everything queued so far
+                flushing = true;
+                List<ByteBuffer> batch = pending;
+                long batchEnd = nextSequence;
+                pending = new ArrayList<>();
+                lock.unlock();
+                long start = System.nanoTime();
+                IOException failure = null;
+                try {
+                    writeBatch(batch);
+                } catch (IOException e) {
+                    failure = e;
+                } finally {
+                    lock.lock();
+                    flushing = false;
+                }
+                long elapsed = System.nanoTime() - start;
+
+                if (failure != null) {
+                    // The log is in an unknown state; fail this and every later append
+                    flushFailure = failure;
+                    committed.signalAll();
+                    throw failure;
+                }
+                committedSequence = batchEnd;
+                recordStats(batch.size(), elapsed);
+                committed.signalAll();
+            }
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeBatch(List<ByteBuffer> batch) throws IOException {
+        ByteBuffer[] buffers = batch.toArray(new ByteBuffer[0]);
+        long remaining = 0;
+        for (ByteBuffer b : buffers) remaining += b.remaining();
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+
+        if (policy == SyncPolicy.EVERY_RECORD) {
+            channel.force(false);
+        } else {
+            dirty = true;
+        }
+    }
+
+    private void recordStats(int batchSize, long elapsedNanos) {
+        commitCount++;
+        recordCount += batchSize;
+        totalCommitNanos += elapsedNanos;
+        lastCommitNanos = elapsedNanos;
+        lastBatchSize = batchSize;
+        maxBatchSize = Math.max(maxBatchSize, batchSize);
+    }
+
+    private void syncIfDirty() {
+        if (!dirty) return;
+        try {
+            dirty = false;
+            channel.force(false);
+        } catch (IOException e) {
+            System.out.println("Failed to sync transaction log: " + e.getMessage());
+        }
+    }
+
+    private static ByteBuffer frame(long sequence, byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        buffer.putInt(payload.length);
+        buffer.putLong(sequence);
+        buffer.putInt(checksum(sequence, payload, payload.length));
+        buffer.put(payload);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int checksum(long sequence, byte[] payload, int length) {
+        CRC32 crc = new CRC32();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (sequence >>> shift));
+        }
+        crc.update(payload, 0, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Passes every intact record's payload, in order, to the consumer.
+     * Stops at the first torn or corrupt record.
+     */
+    public void replay(Consumer<String> consumer) throws IOException {
+        replay(0, consumer);
+    }
+
+    /**
+     * Replays only records with a sequence number above afterSequence, e.g.
+     * those not yet covered by a snapshot.
+     */
+    public void replay(long afterSequence, Consumer<String> consumer) throws IOException {
+        replay(afterSequence, (payload, sequence) -> consumer.accept(payload));
+    }
+
+    /**
+     * Same as replay(long, Consumer), also passing each record's sequence number.
+     */
+    public void replay(long afterSequence, ObjLongConsumer<String> consumer) throws IOException {
+        lock.lock();
+        try {
+            scan(afterSequence, consumer);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Reads records from the start; returns the offset just past the last intact one.
+    private long scan(long afterSequence, ObjLongConsumer<String> consumer) throws IOException {
+        long position = 0;
+        long size = channel.size();
+        long lastSequence = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+            int length = header.getInt();
+            long sequence = header.getLong();
+            int crc = header.getInt();
+            if (length < 0 || length > MAX_RECORD_SIZE || position + HEADER_SIZE + length > size) break;
+            if (sequence != lastSequence + 1 && lastSequence != 0) break;
+
+            ByteBuffer body = ByteBuffer.allocate(length);
+            readFully(body, position + HEADER_SIZE);
+            if (checksum(sequence, body.array(), length) != crc) break;
+
+            if (consumer != null && sequence > afterSequence) {
+                consumer.accept(new String(body.array(), 0, length, StandardCharsets.UTF_8), sequence);
+            }
+            lastSequence = sequence;
+            position += HEADER_SIZE + length;
+        }
+
+        if (consumer == null) {
+            nextSequence = lastSequence;
+        }
+        return position;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) throw new IOException("Unexpected end of log " + path);
+            position += n;
+        }
+    }
+
+    /**
+     * Discards every record, e.g. once they are all covered by a saved snapshot.
+     * Sequence numbers keep counting up.
+     */
+    public void truncate() throws IOException {
+        lock.lock();
+        try {
+            while (flushing) committed.awaitUninterruptibly();
+            channel.truncate(0);
+            channel.position(0);
+            channel.force(true);
+            dirty = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes later records number from above the given sequence, so they are
+     * never mistaken for records a snapshot already covers.
+     */
+    public void advanceSequenceTo(long sequence) {
+        lock.lock();
+        try {
+            if (sequence > nextSequence) {
+                nextSequence = sequence;
+                committedSequence = sequence;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Highest sequence number handed out so far.
+     */
+    public long getLastSequence() {
+        lock.lock();
+        try {
+            return nextSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public SyncPolicy getPolicy() { return policy; }
+
+    public long getCommitCount() {
+        lock.lock();
+        try {
+            return commitCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getAverageBatchSize() {
+        lock.lock();
+        try {
+            return commitCount == 0 ? 0 : (double) recordCount / commitCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLastBatchSize() {
+        lock.lock();
+        try {
+            return lastBatchSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMaxBatchSize() {
+        lock.lock();
+        try {
+            return maxBatchSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getAverageCommitLatencyMicros() {
+        lock.lock();
+        try {
+            return commitCount == 0 ? 0 : totalCommitNanos / 1000.0 / commitCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getLastCommitLatencyMicros() {
+        lock.lock();
+        try {
+            return lastCommitNanos / 1000.0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WAL %s | policy: %s | commits: %d | avg batch: %.1f | max batch: %d | avg commit: %.1f us",
+            path, policy, getCommitCount(), getAverageBatchSize(), getMaxBatchSize(), getAverageCommitLatencyMicros());
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (syncer != null) {
+            syncer.shutdownNow();
+        }
+        lock.lock();
+        try {
+            while (flushing) committed.awaitUninterruptibly();
+            if (channel.isOpen()) {
+                if (policy != SyncPolicy.OS) channel.force(false);
+                channel.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package datastructures;
+
+import static harness.Harness.check;
+import static harness.Harness.intArg;
+import static harness.Harness.percentile;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures CompletionTrie autocomplete latency as a user would see it: a
+ * trie of synthetic titles (words drawn with a skewed frequency, so popular
+ * prefixes have huge subtrees) with Zipf-like weights, then every prefix of
+ * 1 to 12 characters of random titles is completed to the top 10 and timed
+ * one keystroke at a time. Also times weight updates, the work done per loan.
+ * The first pass warms the JIT up; percentiles are from the second.
+ * Usage: java -Xmx3g datastructures.CompletionTrieBenchmark [titles] [queries]
+ */
+public class CompletionTrieBenchmark {
+    private static final int VOCABULARY = 20_000;
+    private static final int LIMIT = 10;
+    private static final int MAX_PREFIX = 12;
+    private static final int WEIGHT_UPDATES = 200_000;
+
+    public static void main(String[] args) {
+        int titleCount = intArg(args, 0, 1_000_000);
+        int queries = intArg(args, 1, 20_000);
+        Random random = new Random(23);
+        System.out.println(titleCount + " titles, " + queries + " typed titles, top " + LIMIT);
+
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 3 + random.nextInt(7);
+            for (int j = 0; j < length; j++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            words[i] = word.toString();
+        }
+
+        CompletionTrie<Integer> trie = new CompletionTrie<>();
+        String[] titles = new String[titleCount];
+        long start = System.nanoTime();
+        for (int i = 0; i < titleCount; i++) {
+            StringBuilder title = new StringBuilder();
+            int wordCount = 1 + random.nextInt(5);
+            for (int j = 0; j < wordCount; j++) {
+                if (j > 0) title.append(' ');
+                title.append(words[(int) Math.min(VOCABULARY - 1, Math.abs(random.nextGaussian()) * 3_000)]);
+            }
+            titles[i] = title.toString();
+            trie.insert(titles[i], i);
+            trie.setWeight(i, 1_000 / (1 + random.nextInt(1_000)));
+        }
+        System.out.printf("Built in %.1f s: %d keys, %d nodes%n",
+                (System.nanoTime() - start) / 1e9, trie.size(), trie.nodeCount());
+
+        long[] latencies = new long[queries * MAX_PREFIX];
+        int keystrokes = 0;
+        int unanswered = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            keystrokes = 0;
+            for (int q = 0; q < queries; q++) {
+                String title = titles[random.nextInt(titleCount)];
+                for (int length = 1; length <= Math.min(title.length(), MAX_PREFIX); length++) {
+                    String prefix = title.substring(0, length);
+                    long before = System.nanoTime();
+                    boolean answered = !trie.complete(prefix, LIMIT).isEmpty();
+                    latencies[keystrokes++] = System.nanoTime() - before;
+                    if (!answered) unanswered++;
+                }
+            }
+        }
+        check(unanswered == 0, unanswered + " typed prefixes had no completions");
+        long[] sorted = Arrays.copyOf(latencies, keystrokes);
+        Arrays.sort(sorted);
+        System.out.printf("Per keystroke: p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us (%d keystrokes)%n",
+                percentile(sorted, 0.50) / 1e3, percentile(sorted, 0.99) / 1e3, percentile(sorted, 0.999) / 1e3,
+                sorted[keystrokes - 1] / 1e3, keystrokes);
+
+        start = System.nanoTime();
+        for (int i = 0; i < WEIGHT_UPDATES; i++) {
+            int value = random.nextInt(titleCount);
+            trie.setWeight(value, trie.getWeight(value) + 1);
+        }
+        System.out.printf("Weight update: %.2f us each%n", (System.nanoTime() - start) / 1e3 / WEIGHT_UPDATES);
+        System.out.println("OK: every typed prefix had completions.");
+    }
+}
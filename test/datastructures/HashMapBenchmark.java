@@ -0,0 +1,77 @@
+package datastructures;
+
+import static harness.Harness.bestOf;
+import static harness.Harness.check;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Times random String gets on HashMap at several sizes, beside
+ * java.util.HashMap holding the same keys. Each size is filled with
+ * "key-<n>" strings and then probed in random order, all hits, then all
+ * misses; the maps are built one at a time so the largest size fits in a
+ * few gigabytes of heap.
+ * Usage: java -Xmx4g datastructures.HashMapBenchmark [size...]
+ */
+public class HashMapBenchmark {
+    private static final int GETS = 2_000_000;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        int[] sizes = {1_000, 100_000, 10_000_000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+        System.out.println("HashMap random String gets, " + GETS + " per round, best of " + ROUNDS);
+
+        for (int size : sizes) {
+            Random random = new Random(size);
+            String[] keys = new String[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = "key-" + i;
+            }
+            String[] hits = new String[GETS];
+            String[] misses = new String[GETS];
+            for (int i = 0; i < GETS; i++) {
+                // Fresh String objects, so each get compares contents as a caller's would
+                hits[i] = new String(keys[random.nextInt(size)]);
+                misses[i] = "miss-" + random.nextInt(size);
+            }
+
+            HashMap<String, Integer> map = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                map.put(keys[i], i);
+            }
+            check(map.size() == size, "size " + map.size() + " after " + size + " puts");
+            double hit = (double) bestOf(ROUNDS, () -> timeGets(map::get, hits, GETS)) / GETS;
+            double miss = (double) bestOf(ROUNDS, () -> timeGets(map::get, misses, 0)) / GETS;
+
+            Map<String, Integer> reference = new java.util.HashMap<>();
+            for (int i = 0; i < size; i++) {
+                reference.put(keys[i], i);
+            }
+            double referenceHit = (double) bestOf(ROUNDS, () -> timeGets(reference::get, hits, GETS)) / GETS;
+
+            System.out.printf("%,12d entries: get hit %.0f ns, get miss %.0f ns, java.util.HashMap hit %.0f ns%n",
+                    size, hit, miss, referenceHit);
+        }
+        System.out.println("OK: every probe found exactly the keys that were put.");
+    }
+
+    // Nanoseconds to look up every key; the number found must match
+    private static long timeGets(Function<String, Integer> get, String[] probes, int expectedFound) {
+        long start = System.nanoTime();
+        int found = 0;
+        for (String key : probes) {
+            if (get.apply(key) != null) found++;
+        }
+        long nanos = System.nanoTime() - start;
+        check(found == expectedFound, "found " + found + " keys, expected " + expectedFound);
+        return nanos;
+    }
+}
@@ -0,0 +1,71 @@
+package datastructures;
+
+import static harness.Harness.check;
+import static harness.Harness.intArg;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Times PriorityQueue at arities 2, 4 and 8: every element is offered and
+ * then polled back out, once with random keys and once with keys arriving in
+ * roughly ascending order (as due dates do). Arities alternate within each
+ * round so JIT warm-up and GC favour none of them; the best round is shown.
+ * Fails if a queue polls out of order.
+ * Usage: java datastructures.PriorityQueueBenchmark [elements] [rounds]
+ */
+public class PriorityQueueBenchmark {
+    private static final int[] ARITIES = {2, 4, 8};
+
+    public static void main(String[] args) {
+        int n = intArg(args, 0, 3_000_000);
+        int rounds = intArg(args, 1, 5);
+        Random random = new Random(15);
+        System.out.println(n + " offers then " + n + " polls, best of " + rounds + " rounds");
+
+        Integer[] randomKeys = new Integer[n];
+        Integer[] ascendingKeys = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            randomKeys[i] = random.nextInt();
+            ascendingKeys[i] = i / 64 + random.nextInt(1_000);
+        }
+        run("random keys", randomKeys, rounds);
+        run("ascending keys", ascendingKeys, rounds);
+        System.out.println("OK: every queue polled in order.");
+    }
+
+    private static void run(String label, Integer[] keys, int rounds) {
+        long[] best = new long[ARITIES.length];
+        Arrays.fill(best, Long.MAX_VALUE);
+        for (int r = 0; r < rounds; r++) {
+            for (int a = 0; a < ARITIES.length; a++) {
+                long start = System.nanoTime();
+                offerThenPoll(keys, ARITIES[a]);
+                best[a] = Math.min(best[a], System.nanoTime() - start);
+            }
+        }
+        StringBuilder line = new StringBuilder(String.format("%-15s", label));
+        for (int a = 0; a < ARITIES.length; a++) {
+            line.append(String.format("  %d-ary %5d ms", ARITIES[a], best[a] / 1_000_000));
+        }
+        System.out.println(line);
+    }
+
+    private static void offerThenPoll(Integer[] keys, int arity) {
+        PriorityQueue<Integer> queue = new PriorityQueue<>(Integer::compare, arity);
+        for (Integer key : keys) {
+            queue.offer(key);
+        }
+        int previous = Integer.MIN_VALUE;
+        int polled = 0;
+        int outOfOrder = 0;
+        while (!queue.isEmpty()) {
+            int key = queue.poll();
+            if (key < previous) outOfOrder++;
+            previous = key;
+            polled++;
+        }
+        check(outOfOrder == 0, "PriorityQueue(" + arity + ") polled " + outOfOrder + " keys out of order");
+        check(polled == keys.length, "PriorityQueue(" + arity + ") polled " + polled + " of " + keys.length);
+    }
+}
@@ -0,0 +1,138 @@
+package datastructures;
+
+import static harness.Harness.check;
+import static harness.Harness.intArg;
+import static harness.Harness.longArg;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Randomized differential check of TreeMap against java.util.TreeMap:
+ * batches of random put/remove/get/rank/select/range/navigation calls, with
+ * the red-black invariants (isBalanced) and the full contents compared after
+ * every batch. Fails on the first mismatch.
+ * Usage: java datastructures.TreeMapStressTest [seed] [batches]
+ */
+public class TreeMapStressTest {
+    private static final int KEY_RANGE = 5_000;
+    private static final int BATCH_SIZE = 1_000;
+
+    public static void main(String[] args) {
+        long seed = longArg(args, 0, System.nanoTime());
+        int batches = intArg(args, 1, 200);
+        Random random = new Random(seed);
+        System.out.println("TreeMap stress test, seed " + seed + ", " + batches + " batches of " + BATCH_SIZE);
+
+        TreeMap<Integer, Integer> tree = new TreeMap<>();
+        java.util.TreeMap<Integer, Integer> expected = new java.util.TreeMap<>();
+
+        // Start from a bulk-loaded tree so the bulkLoad shape is exercised too
+        List<Integer> keys = new ArrayList<>();
+        List<Integer> values = new ArrayList<>();
+        for (int k = 0; k < KEY_RANGE; k += 1 + random.nextInt(4)) {
+            keys.add(k);
+            values.add(-k);
+            expected.put(k, -k);
+        }
+        tree.bulkLoad(keys, values);
+        verify(tree, expected, "after bulkLoad");
+
+        long operations = 0;
+        for (int batch = 0; batch < batches; batch++) {
+            // Alternate growing and shrinking phases so the tree is rebuilt from both ends
+            int putPercent = batch % 20 < 10 ? 60 : 35;
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                int key = random.nextInt(KEY_RANGE);
+                int op = random.nextInt(100);
+                if (op < putPercent) {
+                    int value = random.nextInt();
+                    tree.put(key, value);
+                    expected.put(key, value);
+                } else if (op < 70) {
+                    check(equal(tree.remove(key), expected.remove(key)), "remove(" + key + ")");
+                } else if (op < 80) {
+                    check(equal(tree.get(key), expected.get(key)), "get(" + key + ")");
+                    check(tree.containsKey(key) == expected.containsKey(key), "containsKey(" + key + ")");
+                } else if (op < 87) {
+                    check(tree.rank(key) == expected.headMap(key).size(), "rank(" + key + ")");
+                } else if (op < 92) {
+                    if (!expected.isEmpty()) {
+                        int rank = random.nextInt(expected.size());
+                        Integer selected = tree.select(rank);
+                        check(expected.containsKey(selected) && expected.headMap(selected).size() == rank,
+                                "select(" + rank + ")");
+                        check(tree.rank(selected) == rank, "rank(select(" + rank + "))");
+                    }
+                } else if (op < 96) {
+                    int hi = key + random.nextInt(500);
+                    check(tree.countInRange(key, hi) == expected.subMap(key, true, hi, true).size(),
+                            "countInRange(" + key + ", " + hi + ")");
+                    check(tree.subMap(key, true, hi, false).size() == expected.subMap(key, true, hi, false).size(),
+                            "subMap(" + key + ", " + hi + ").size()");
+                } else {
+                    check(equal(tree.ceilingKey(key), expected.ceilingKey(key)), "ceilingKey(" + key + ")");
+                    check(equal(tree.floorKey(key), expected.floorKey(key)), "floorKey(" + key + ")");
+                    check(equal(tree.higherKey(key), expected.higherKey(key)), "higherKey(" + key + ")");
+                    check(equal(tree.lowerKey(key), expected.lowerKey(key)), "lowerKey(" + key + ")");
+                }
+                operations++;
+            }
+            verify(tree, expected, "after batch " + batch);
+        }
+
+        // Entries handed out earlier must not change as removals rearrange the tree
+        List<Map.Entry<Integer, Integer>> held = new ArrayList<>();
+        tree.iterator().forEachRemaining(held::add);
+
+        // Drain completely, in random order: removal down to an empty tree must keep the invariants
+        Map<Integer, Integer> beforeDrain = new java.util.TreeMap<>(expected);
+        List<Integer> drainOrder = new ArrayList<>(expected.keySet());
+        Collections.shuffle(drainOrder, random);
+        for (Integer key : drainOrder) {
+            check(equal(tree.remove(key), expected.remove(key)), "drain remove(" + key + ")");
+        }
+        verify(tree, expected, "after draining");
+        check(held.size() == beforeDrain.size(), "entries held before draining");
+        Iterator<Map.Entry<Integer, Integer>> heldEntries = held.iterator();
+        for (Map.Entry<Integer, Integer> entry : beforeDrain.entrySet()) {
+            Map.Entry<Integer, Integer> kept = heldEntries.next();
+            check(kept.getKey().equals(entry.getKey()) && kept.getValue().equals(entry.getValue()),
+                    "held entry " + kept.getKey() + "=" + kept.getValue() + " changed by removals, was "
+                    + entry.getKey() + "=" + entry.getValue());
+        }
+
+        System.out.println("OK: " + operations + " random operations matched java.util.TreeMap; "
+                + "invariants held after every batch.");
+    }
+
+    // Same size, same entries in the same order, balanced, and height within 2 log2(n + 1)
+    private static void verify(TreeMap<Integer, Integer> tree, java.util.TreeMap<Integer, Integer> expected, String when) {
+        check(tree.isBalanced(), "isBalanced() " + when);
+        check(tree.size() == expected.size(), "size() " + when + ": " + tree.size() + " vs " + expected.size());
+        check(tree.isEmpty() == expected.isEmpty(), "isEmpty() " + when);
+        double limit = 2 * Math.log(expected.size() + 1) / Math.log(2);
+        check(tree.height() <= limit + 1e-9, "height() " + when + ": " + tree.height() + " for " + expected.size() + " keys");
+
+        Iterator<Map.Entry<Integer, Integer>> actual = tree.iterator();
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            check(actual.hasNext(), "iterator ended early " + when);
+            Map.Entry<Integer, Integer> next = actual.next();
+            check(next.getKey().equals(entry.getKey()) && next.getValue().equals(entry.getValue()),
+                    "iterator entry " + when + ": " + next.getKey() + " vs " + entry.getKey());
+        }
+        check(!actual.hasNext(), "iterator has extra entries " + when);
+        if (!expected.isEmpty()) {
+            check(tree.firstKey().equals(expected.firstKey()), "firstKey() " + when);
+            check(tree.lastKey().equals(expected.lastKey()), "lastKey() " + when);
+        }
+    }
+
+    private static boolean equal(Integer a, Integer b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,197 @@
+package functionality;
+
+import static harness.Harness.check;
+import static harness.Harness.intArg;
+import static harness.Harness.longArg;
+
+import model.Transaction;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import datastructures.CountMinSketch;
+import datastructures.SpaceSaving;
+
+/**
+ * Checks the approximate activity counts against exact ones on a generated
+ * borrow stream with Zipf-distributed books and borrowers:
+ * - SpaceSaving and CountMinSketch on their own: every estimate is an upper
+ *   bound, Space-Saving is off by at most error(key), and Count-Min exceeds
+ *   getErrorBound() for no more than about delta of the keys.
+ * - ApproximateActivity over a 30-day window: its top books are compared with
+ *   Transaction.mostBorrowedBooksLast30Days, and every per-book and
+ *   per-borrower estimate with the exact count, within getErrorBound.
+ * Fails when a bound is broken.
+ * Usage: java functionality.ApproximateActivityAccuracyTest [loans] [seed]
+ */
+public class ApproximateActivityAccuracyTest {
+    private static final int WINDOW_DAYS = 30;
+    private static final int HISTORY_DAYS = 45; // older loans must fall out of the window
+    private static final int BOOKS = 20_000;
+    private static final int BORROWERS = 5_000;
+    private static final double EPSILON = 0.001;
+    private static final double DELTA = 0.01;
+    private static final int TOP = 5;
+
+    public static void main(String[] args) {
+        int loans = intArg(args, 0, 300_000);
+        long seed = longArg(args, 1, System.nanoTime());
+        Random random = new Random(seed);
+        LocalDate today = LocalDate.now();
+        long todayDay = today.toEpochDay();
+        System.out.printf("%d loans over %d days, %d books, %d borrowers, epsilon %.3f, delta %.2f, seed %d%n",
+                loans, HISTORY_DAYS, BOOKS, BORROWERS, EPSILON, DELTA, seed);
+
+        // Chronological stream, as the tracker records it
+        double[] bookCdf = zipfCdf(BOOKS, 1.1);
+        double[] borrowerCdf = zipfCdf(BORROWERS, 0.8);
+        List<Transaction> history = new ArrayList<>(loans);
+        for (int i = 0; i < loans; i++) {
+            LocalDate day = today.minusDays(HISTORY_DAYS - 1 - (long) i * HISTORY_DAYS / loans);
+            history.add(new Transaction("ISBN-" + sample(bookCdf, random), "B" + sample(borrowerCdf, random), day));
+        }
+
+        ApproximateActivity activity = new ApproximateActivity(WINDOW_DAYS, EPSILON, DELTA);
+        SpaceSaving<String> books = new SpaceSaving<>(EPSILON);
+        CountMinSketch bookSketch = new CountMinSketch(EPSILON, DELTA);
+        Map<String, Long> exactBooks = new HashMap<>();
+        Map<String, Long> exactBorrowers = new HashMap<>();
+        List<Transaction> window = new ArrayList<>();
+        for (Transaction t : history) {
+            activity.record(t);
+            if (t.getBorrowEpochDay() > todayDay - WINDOW_DAYS) {
+                window.add(t);
+                books.add(t.getBookIsbn(), 1);
+                bookSketch.add(t.getBookIsbn(), 1);
+                exactBooks.merge(t.getBookIsbn(), 1L, Long::sum);
+                exactBorrowers.merge(t.getBorrowerId(), 1L, Long::sum);
+            }
+        }
+        long total = window.size();
+
+        // === SpaceSaving and CountMinSketch on their own ===
+        System.out.println("\nSingle summaries over the " + total + " loans in the window");
+        long maxSpaceSavingError = 0;
+        Map<String, Long> monitored = books.top(books.getCapacity());
+        for (Map.Entry<String, Long> entry : monitored.entrySet()) {
+            long exact = exactBooks.getOrDefault(entry.getKey(), 0L);
+            long over = entry.getValue() - exact;
+            check(over >= 0, "SpaceSaving underestimates " + entry.getKey());
+            check(over <= books.error(entry.getKey()), "SpaceSaving over by " + over
+                    + " for " + entry.getKey() + ", error(key) is " + books.error(entry.getKey()));
+            maxSpaceSavingError = Math.max(maxSpaceSavingError, over);
+        }
+        long guaranteed = total / books.getCapacity();
+        for (Map.Entry<String, Long> entry : exactBooks.entrySet()) {
+            if (entry.getValue() > guaranteed) {
+                check(monitored.containsKey(entry.getKey()),
+                        "SpaceSaving lost heavy hitter " + entry.getKey() + " (" + entry.getValue() + " loans)");
+            }
+        }
+        System.out.println("SpaceSaving: largest overestimate " + maxSpaceSavingError
+                + ", bound total/capacity = " + guaranteed);
+
+        ErrorStats sketch = new ErrorStats(bookSketch.getErrorBound());
+        for (Map.Entry<String, Long> entry : exactBooks.entrySet()) {
+            sketch.add(entry.getKey(), entry.getValue(), bookSketch.estimate(entry.getKey()));
+        }
+        sketch.print("CountMinSketch");
+        sketch.checkWithinDelta("CountMinSketch");
+
+        // === ApproximateActivity against the exact 30-day report ===
+        System.out.println("\nTop " + TOP + " books, past " + WINDOW_DAYS + " days");
+        Map<String, Integer> exactTop = Transaction.mostBorrowedBooksLast30Days(window);
+        Map<String, Long> approximateTop = activity.topBooks(todayDay, TOP);
+        long bound = activity.getErrorBound(todayDay);
+        check(activity.getLoanCount(todayDay) == total,
+                "window holds " + activity.getLoanCount(todayDay) + " loans, expected " + total);
+        System.out.println("Exact:       " + exactTop);
+        System.out.println("Approximate: " + approximateTop + " (counts over by at most " + bound + ")");
+
+        long[] sorted = exactBooks.values().stream().mapToLong(Long::longValue).sorted().toArray();
+        long kth = sorted.length >= TOP ? sorted[sorted.length - TOP] : 0;
+        int overlap = 0;
+        for (Map.Entry<String, Long> entry : approximateTop.entrySet()) {
+            long exact = exactBooks.getOrDefault(entry.getKey(), 0L);
+            check(entry.getValue() >= exact && entry.getValue() - exact <= bound,
+                    "top book " + entry.getKey() + " estimated " + entry.getValue() + ", exact " + exact);
+            // A reported book can only displace a true top book whose count is within the bound
+            check(exact >= kth - bound, "top book " + entry.getKey() + " has " + exact
+                    + " loans, the true " + TOP + "th has " + kth);
+            if (exactTop.containsKey(entry.getKey())) overlap++;
+        }
+        System.out.println("Overlap with the exact top " + TOP + ": " + overlap + "/" + exactTop.size());
+
+        System.out.println("\nPer-key window estimates");
+        ErrorStats bookStats = new ErrorStats(bound);
+        for (Map.Entry<String, Long> entry : exactBooks.entrySet()) {
+            bookStats.add(entry.getKey(), entry.getValue(), activity.estimateBookLoans(entry.getKey(), todayDay));
+        }
+        bookStats.print("Books");
+        bookStats.checkWithinDelta("Books");
+
+        ErrorStats borrowerStats = new ErrorStats(bound);
+        for (Map.Entry<String, Long> entry : exactBorrowers.entrySet()) {
+            borrowerStats.add(entry.getKey(), entry.getValue(), activity.estimateBorrowerLoans(entry.getKey(), todayDay));
+        }
+        borrowerStats.print("Borrowers");
+        borrowerStats.checkWithinDelta("Borrowers");
+
+        System.out.println("\nOK: all estimates within their error bounds.");
+    }
+
+    // Over-estimates of Count-Min style estimates against one error bound
+    private static final class ErrorStats {
+        final long bound;
+        int keys;
+        int overBound;
+        long maxError;
+        long totalError;
+
+        ErrorStats(long bound) {
+            this.bound = bound;
+        }
+
+        void add(String key, long exact, long estimate) {
+            check(estimate >= exact, "estimate " + estimate + " below exact " + exact + " for " + key);
+            long error = estimate - exact;
+            keys++;
+            totalError += error;
+            maxError = Math.max(maxError, error);
+            if (error > bound) overBound++;
+        }
+
+        void print(String label) {
+            System.out.printf("%s: %d keys, mean overestimate %.2f, max %d, bound %d, over bound %d (%.3f%%)%n",
+                    label, keys, keys == 0 ? 0.0 : (double) totalError / keys, maxError, bound,
+                    overBound, keys == 0 ? 0.0 : 100.0 * overBound / keys);
+        }
+
+        // Each key may exceed the bound with probability delta; allow twice that plus a little slack
+        void checkWithinDelta(String label) {
+            check(overBound <= 2 * DELTA * keys + 3, label + ": " + overBound + " of " + keys
+                    + " estimates exceed the bound of " + bound);
+        }
+    }
+
+    private static double[] zipfCdf(int n, double s) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, s);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+
+    private static int sample(double[] cdf, Random random) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cdf.length - 1);
+    }
+}
@@ -0,0 +1,165 @@
+package functionality;
+
+import static harness.Harness.check;
+import static harness.Harness.intArg;
+
+import model.Borrower;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * Runs several desks against one ConcurrentBorrowerRegistry and checks the
+ * invariants that must hold however the threads interleave:
+ * - Fines charged through updateBorrower, and straight on the Borrower
+ *   objects, all arrive: the registry's total
+ *   equals what the desks charged, and the fines leaderboard agrees with
+ *   the borrowers' own totals. Timed at 1, 2, 4 ... threads.
+ * - A borrow racing removeBorrower never succeeds on a borrower that is
+ *   removed: one of the two wins, never both.
+ * - Desks loading the same IDs leave exactly the registered borrower of
+ *   each ID on the leaderboard.
+ * The races are only exercised on a machine with several cores; on one
+ * core the threads rarely interleave mid-update.
+ * Usage: java functionality.ConcurrentBorrowerRegistryTest [threads] [borrowers] [chargesPerThread] [races]
+ */
+public class ConcurrentBorrowerRegistryTest {
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = intArg(args, 0, 8);
+        int borrowerCount = intArg(args, 1, 1_000);
+        int chargesPerThread = intArg(args, 2, 200_000);
+        int races = intArg(args, 3, 20_000);
+        System.out.println("Up to " + maxThreads + " desks, " + borrowerCount + " borrowers");
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            concurrentFines(threads, borrowerCount, chargesPerThread);
+        }
+        borrowRacingRemoval(races);
+        concurrentLoads(maxThreads, borrowerCount);
+        System.out.println("OK: no fine, borrow or leaderboard entry was lost or misplaced.");
+    }
+
+    private static void concurrentFines(int threads, int borrowerCount, int chargesPerThread) throws Exception {
+        ConcurrentBorrowerRegistry registry = new ConcurrentBorrowerRegistry(threads);
+        for (int i = 0; i < borrowerCount; i++) {
+            registry.addBorrower(new Borrower("Borrower " + i, "B" + i, "0200000000"));
+        }
+
+        long nanos = runDesks(threads, desk -> {
+            Random random = new Random(desk);
+            for (int i = 0; i < chargesPerThread; i++) {
+                String id = "B" + random.nextInt(borrowerCount);
+                if ((i & 1) == 0) {
+                    check(registry.updateBorrower(id, b -> b.addFine(1.0)), "borrower " + id + " not found");
+                } else {
+                    registry.findBorrower(id).addFine(1.0); // as OverdueMonitor.updateFines(List) charges
+                }
+            }
+        });
+
+        double total = 0;
+        double highest = 0;
+        for (Borrower b : registry.getAllBorrowers()) {
+            total += b.getFinesOwed();
+            highest = Math.max(highest, b.getFinesOwed());
+        }
+        long charged = (long) threads * chargesPerThread;
+        check(total == charged, threads + " desks charged " + charged + " but borrowers owe " + total);
+
+        List<Borrower> top = registry.getTopDebtors(borrowerCount);
+        check(top.size() == borrowerCount, "leaderboard holds " + top.size() + " of " + borrowerCount + " debtors");
+        check(top.get(0).getFinesOwed() == highest, "leaderboard leads with " + top.get(0).getFinesOwed()
+                + ", highest fine is " + highest);
+        for (int i = 1; i < top.size(); i++) {
+            check(top.get(i - 1).getFinesOwed() >= top.get(i).getFinesOwed(), "leaderboard out of order at " + i);
+        }
+        System.out.printf("%d desk(s): %,d fines in %.1f ms (%.0f ns each)%n",
+                threads, charged, nanos / 1e6, (double) nanos / charged);
+    }
+
+    private static void borrowRacingRemoval(int races) throws Exception {
+        ConcurrentBorrowerRegistry registry = new ConcurrentBorrowerRegistry();
+        int[] outcomes = new int[2]; // removals first, borrows first
+        for (int r = 0; r < races; r++) {
+            String id = "R" + r;
+            registry.addBorrower(new Borrower("Racer " + r, id, "0200000000"));
+            boolean[] removed = new boolean[1];
+            boolean[] borrowed = new boolean[1];
+            runDesks(2, desk -> {
+                if (desk == 0) {
+                    try {
+                        removed[0] = registry.removeBorrower(id);
+                    } catch (IllegalStateException e) {
+                        // The borrow got there first
+                    }
+                } else {
+                    borrowed[0] = registry.updateBorrower(id, b -> b.addBorrowedBook("978-" + id));
+                }
+            });
+            check(removed[0] != borrowed[0], "race " + r + ": removed " + removed[0] + ", borrowed " + borrowed[0]);
+            check(borrowed[0] == (registry.findBorrower(id) != null), "race " + r + ": borrower registered "
+                    + (registry.findBorrower(id) != null) + " after borrowed " + borrowed[0]);
+            outcomes[removed[0] ? 0 : 1]++;
+        }
+        System.out.println("Borrow vs removal: " + outcomes[0] + " removals first, " + outcomes[1]
+                + " borrows first, none both");
+    }
+
+    private static void concurrentLoads(int threads, int borrowerCount) throws Exception {
+        ConcurrentBorrowerRegistry registry = new ConcurrentBorrowerRegistry(threads);
+        runDesks(threads, desk -> {
+            for (int i = 0; i < borrowerCount; i++) {
+                Borrower b = Borrower.fromFileString("Borrower " + i + "||B" + i + "||||" + (i + 1) + "||0200000000");
+                registry.loadBorrower(b);
+            }
+        });
+
+        check(registry.size() == borrowerCount, "registry holds " + registry.size() + " borrowers");
+        List<Borrower> top = registry.getTopDebtors(borrowerCount + threads);
+        check(top.size() == borrowerCount, "leaderboard holds " + top.size() + " entries for "
+                + borrowerCount + " borrowers");
+        for (Borrower b : top) {
+            check(b == registry.findBorrower(b.getIdNumber()), "leaderboard holds a replaced copy of " + b.getIdNumber());
+        }
+        System.out.println("Concurrent loads: " + threads + " desks, leaderboard matches the registry");
+    }
+
+    private interface Desk {
+        void run(int desk) throws Exception;
+    }
+
+    // Starts the desks together and waits for all; returns the elapsed nanoseconds
+    private static long runDesks(int threads, Desk desk) throws Exception {
+        CyclicBarrier start = new CyclicBarrier(threads + 1);
+        List<Thread> workers = new ArrayList<>();
+        Throwable[] failure = new Throwable[1];
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    desk.run(id);
+                } catch (Throwable e) {
+                    synchronized (failure) {
+                        failure[0] = e;
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.await();
+        long begin = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long nanos = System.nanoTime() - begin;
+        synchronized (failure) {
+            if (failure[0] instanceof RuntimeException) throw (RuntimeException) failure[0];
+            if (failure[0] != null) throw new IllegalStateException("Desk failed", failure[0]);
+        }
+        return nanos;
+    }
+}
@@ -0,0 +1,89 @@
+package functionality;
+
+import static harness.Harness.check;
+import static harness.Harness.intArg;
+
+import model.Book;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import datastructures.TreeMap;
+
+/**
+ * Times BookInventory.findBook and removeBook through the ISBN index against
+ * the lookup they replaced, a containsKey probe of every category tree in
+ * turn. Lookups are random ISBNs, half of them in the catalogue and half
+ * missing, so the scan is timed on both its early-exit and worst cases.
+ * Usage: java functionality.IsbnLookupBenchmark [books] [categories] [lookups]
+ */
+public class IsbnLookupBenchmark {
+
+    public static void main(String[] args) {
+        int bookCount = intArg(args, 0, 200_000);
+        int categoryCount = intArg(args, 1, 500);
+        int lookups = intArg(args, 2, 200_000);
+        Random random = new Random(42);
+        System.out.println(bookCount + " books in " + categoryCount + " categories, " + lookups + " lookups");
+
+        List<Book> books = new ArrayList<>(bookCount);
+        List<String> categories = new ArrayList<>(categoryCount);
+        for (int c = 0; c < categoryCount; c++) {
+            categories.add("Category " + c);
+        }
+        for (int i = 0; i < bookCount; i++) {
+            books.add(new Book("Title " + i, "Author " + random.nextInt(10_000), "978-" + i,
+                    categories.get(random.nextInt(categoryCount)), 2000, "Publisher", "A1"));
+        }
+        BookInventory inventory = new BookInventory();
+        inventory.loadBooks(books);
+
+        String[] queries = new String[lookups];
+        for (int i = 0; i < lookups; i++) {
+            int n = random.nextInt(bookCount);
+            queries[i] = random.nextBoolean() ? "978-" + n : "979-" + n;
+        }
+
+        // The first rounds double as JIT warm-up
+        for (int round = 1; round <= 3; round++) {
+            int indexed = 0;
+            int scanned = 0;
+            long start = System.nanoTime();
+            for (String isbn : queries) {
+                if (inventory.findBook(isbn) != null) indexed++;
+            }
+            long indexNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (String isbn : queries) {
+                if (scanFind(inventory, categories, isbn) != null) scanned++;
+            }
+            long scanNanos = System.nanoTime() - start;
+            check(indexed == scanned, "index found " + indexed + " books, scan found " + scanned);
+            System.out.printf("Round %d: findBook %.0f ns, category scan %.0f ns per lookup (%d found)%n",
+                    round, (double) indexNanos / lookups, (double) scanNanos / lookups, indexed);
+        }
+
+        // Removal of every book: index probe plus one category tree
+        int notRemoved = 0;
+        long start = System.nanoTime();
+        for (Book book : books) {
+            if (!inventory.removeBook(book.getIsbn())) notRemoved++;
+        }
+        long removeNanos = System.nanoTime() - start;
+        check(notRemoved == 0, notRemoved + " books were not found by removeBook");
+        check(inventory.totalBookCount() == 0, "books left after removing all");
+        System.out.printf("removeBook: %.0f ns per book (includes the search index and autocomplete)%n",
+                (double) removeNanos / bookCount);
+        System.out.println("OK: index and scan agreed on every lookup.");
+    }
+
+    // The lookup findBook used before the ISBN index: every category tree in turn
+    private static Book scanFind(BookInventory inventory, List<String> categories, String isbn) {
+        for (String category : categories) {
+            TreeMap<String, Book> categoryBooks = inventory.getBooksByCategory(category);
+            if (categoryBooks.containsKey(isbn)) {
+                return categoryBooks.get(isbn);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,106 @@
+package functionality;
+
+import static harness.Harness.check;
+import static harness.Harness.intArg;
+
+import model.Borrower;
+import model.Transaction;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Times OverdueMonitor.updateFines joining overdue loans to their borrowers:
+ * through the registry's ID index, through the List overload (which indexes
+ * the list once), and with the per-loan scan of the borrower list that
+ * updateFines used before. The scan is timed on a sample of the loans and
+ * scaled up, since the full join would take minutes. Every run must charge
+ * the same total.
+ * Usage: java -Xmx2g functionality.OverdueJoinBenchmark [overdue] [borrowers] [scanSample]
+ */
+public class OverdueJoinBenchmark {
+
+    public static void main(String[] args) {
+        int overdueCount = intArg(args, 0, 100_000);
+        int borrowerCount = intArg(args, 1, 1_000_000);
+        int scanSample = Math.min(intArg(args, 2, 1_000), overdueCount);
+        Random random = new Random(11);
+        LocalDate today = LocalDate.now();
+        System.out.println(overdueCount + " overdue loans, " + borrowerCount + " borrowers");
+
+        List<Borrower> borrowers = new ArrayList<>(borrowerCount);
+        for (int i = 0; i < borrowerCount; i++) {
+            borrowers.add(new Borrower("Borrower " + i, "B" + i, "0200000000"));
+        }
+        BorrowerRegistry registry = new HashBorrowerRegistry();
+        registry.loadBorrowers(borrowers);
+
+        // Due between 1 and 60 days ago, so every loan is charged something
+        List<Transaction> loans = new ArrayList<>(overdueCount);
+        long expectedFines = 0;
+        for (int i = 0; i < overdueCount; i++) {
+            int daysOverdue = 1 + random.nextInt(60);
+            LocalDate borrowed = today.minusDays(Transaction.LOAN_PERIOD_DAYS + daysOverdue);
+            Transaction loan = new Transaction("978-" + random.nextInt(50_000),
+                    "B" + random.nextInt(borrowerCount), borrowed);
+            loan.setLoanId(i + 1);
+            loans.add(loan);
+            expectedFines += daysOverdue;
+        }
+
+        OverdueMonitor byRegistry = monitorFor(loans);
+        double before = totalFines(borrowers);
+        long start = System.nanoTime();
+        byRegistry.updateFines(registry);
+        long registryNanos = System.nanoTime() - start;
+        double charged = totalFines(borrowers) - before;
+        check(charged == expectedFines, "registry join charged " + charged + ", expected " + expectedFines);
+
+        OverdueMonitor byList = monitorFor(loans);
+        before = totalFines(borrowers);
+        start = System.nanoTime();
+        byList.updateFines(borrowers);
+        long listNanos = System.nanoTime() - start;
+        charged = totalFines(borrowers) - before;
+        check(charged == expectedFines, "list join charged " + charged + ", expected " + expectedFines);
+
+        // The pre-index join: a scan of the borrower list per overdue loan
+        long matched = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < scanSample; i++) {
+            String borrowerId = loans.get(i).getBorrowerId();
+            for (Borrower b : borrowers) {
+                if (b.getIdNumber().equals(borrowerId)) {
+                    matched++;
+                    break;
+                }
+            }
+        }
+        long scanNanos = System.nanoTime() - start;
+        check(matched == scanSample, "scan matched " + matched + " of " + scanSample + " loans");
+        double scanEstimate = (double) scanNanos / scanSample * overdueCount;
+
+        System.out.printf("updateFines(registry): %.1f ms%n", registryNanos / 1e6);
+        System.out.printf("updateFines(list):     %.1f ms, including indexing the list%n", listNanos / 1e6);
+        System.out.printf("Per-loan list scan:    %.1f s estimated from %d loans (%.0f us each)%n",
+                scanEstimate / 1e9, scanSample, scanNanos / 1e3 / scanSample);
+        System.out.println("OK: both joins charged GHS " + expectedFines + ".");
+    }
+
+    private static OverdueMonitor monitorFor(List<Transaction> loans) {
+        OverdueMonitor monitor = new OverdueMonitor();
+        monitor.checkOverdue(loans);
+        check(monitor.getOverdueCount() == loans.size(),
+                monitor.getOverdueCount() + " of " + loans.size() + " loans overdue");
+        return monitor;
+    }
+
+    private static double totalFines(List<Borrower> borrowers) {
+        double total = 0;
+        for (Borrower b : borrowers) {
+            total += b.getFinesOwed();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,73 @@
+package harness;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Shared plumbing for the main-method checks and benchmarks in this source
+ * root: positional arguments with defaults, invariant checks that fail the
+ * run, and the timing and heap measurements the benchmarks report.
+ * Compile against the application classes, e.g.
+ *   javac -d out $(find src -name '*.java')
+ *   javac -cp out -d test-out $(find test -name '*.java')
+ *   java -cp out:test-out datastructures.TreeMapStressTest
+ */
+public final class Harness {
+
+    private Harness() {
+    }
+
+    public static int intArg(String[] args, int index, int defaultValue) {
+        return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+    }
+
+    public static long longArg(String[] args, int index, long defaultValue) {
+        return args.length > index ? Long.parseLong(args[index]) : defaultValue;
+    }
+
+    /**
+     * @throws IllegalStateException with the given description when the condition is false.
+     */
+    public static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new IllegalStateException("Check failed: " + what);
+        }
+    }
+
+    /**
+     * Runs the timed section the given number of times and returns the
+     * fastest run in nanoseconds. The section returns the nanoseconds it
+     * measured itself, so set-up inside it can be left out of the time.
+     */
+    public static long bestOf(int rounds, LongSupplier timedSection) {
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < rounds; r++) {
+            best = Math.min(best, timedSection.getAsLong());
+        }
+        return best;
+    }
+
+    /**
+     * The value at the given fraction (0.5 for the median) of an ascending array.
+     */
+    public static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+    }
+
+    /**
+     * Heap in use after a few full collections; the difference of two calls
+     * estimates what the code in between retained.
+     */
+    public static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
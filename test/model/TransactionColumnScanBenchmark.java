@@ -0,0 +1,108 @@
+package model;
+
+import static harness.Harness.bestOf;
+import static harness.Harness.check;
+import static harness.Harness.intArg;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Times the 30-day most-borrowed scan over TransactionColumnStore, against
+ * the same count walked over a List of Transaction objects. Loans are spread
+ * over the past two years, oldest first as the tracker appends them, so
+ * most chunks end before the window and are skipped. The list holds only
+ * the newest listSize loans, since a list of the full history would not
+ * fit in the heap; both results are checked against counts kept while
+ * generating.
+ * Usage: java -Xmx4g model.TransactionColumnScanBenchmark [loans] [books] [listSize]
+ */
+public class TransactionColumnScanBenchmark {
+    private static final int HISTORY_DAYS = 730;
+    private static final int WINDOW_DAYS = 30;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int loans = intArg(args, 0, 20_000_000);
+        int bookCount = intArg(args, 1, 100_000);
+        int listSize = Math.min(intArg(args, 2, 2_000_000), loans);
+        Random random = new Random(17);
+        LocalDate today = LocalDate.now();
+        int fromDay = (int) today.minusDays(WINDOW_DAYS - 1).toEpochDay();
+        int firstDay = (int) today.minusDays(HISTORY_DAYS - 1).toEpochDay();
+        System.out.println(loans + " loans of " + bookCount + " books over " + HISTORY_DAYS + " days");
+
+        String[] isbns = new String[bookCount];
+        for (int i = 0; i < bookCount; i++) {
+            isbns[i] = "978-" + i;
+        }
+
+        TransactionColumnStore columns = new TransactionColumnStore();
+        List<Transaction> list = new ArrayList<>(listSize);
+        int[] inWindow = new int[bookCount];
+        int[] inListWindow = new int[bookCount];
+        for (int i = 0; i < loans; i++) {
+            int day = firstDay + (int) ((long) i * HISTORY_DAYS / loans);
+            // Skewed, so the top books stand clear of the rest
+            int book = (int) Math.min(bookCount - 1, Math.abs(random.nextGaussian()) * bookCount / 8);
+            Transaction t = new Transaction(isbns[book], "B" + (i % 1_000), LocalDate.ofEpochDay(day),
+                    LocalDate.ofEpochDay(day + 7), LoanStatus.RETURNED);
+            columns.append(t);
+            if (day >= fromDay) inWindow[book]++;
+            if (i >= loans - listSize) {
+                list.add(t);
+                if (day >= fromDay) inListWindow[book]++;
+            }
+        }
+        check(columns.size() == loans, "store holds " + columns.size() + " rows");
+
+        long columnNanos = bestOf(ROUNDS, () -> {
+            long start = System.nanoTime();
+            Map<String, Integer> top = Transaction.mostBorrowedBooksLast30Days(columns);
+            long nanos = System.nanoTime() - start;
+            checkTop(top, inWindow, "column store");
+            return nanos;
+        });
+
+        long listNanos = bestOf(ROUNDS, () -> {
+            long start = System.nanoTime();
+            int[] counts = new int[bookCount];
+            for (Transaction t : list) {
+                if (t.getBorrowEpochDay() >= fromDay) {
+                    counts[Integer.parseInt(t.getBookIsbn().substring(4))]++;
+                }
+            }
+            long nanos = System.nanoTime() - start;
+            check(Arrays.equals(counts, inListWindow), "list scan counts differ");
+            return nanos;
+        });
+        checkTop(Transaction.mostBorrowedBooksLast30Days(list), inListWindow, "list");
+
+        System.out.printf("Column store: %.1f ms for %d loans%n", columnNanos / 1e6, loans);
+        System.out.printf("Object list:  %.1f ms for %d loans (count only, %.1f ns per loan)%n",
+                listNanos / 1e6, listSize, (double) listNanos / listSize);
+        System.out.println("OK: both scans found the top books with their exact counts.");
+    }
+
+    // Every reported count is exact, descending, and no unreported book beats the last one
+    private static void checkTop(Map<String, Integer> top, int[] expected, String what) {
+        check(top.size() == 5, what + " reported " + top.size() + " books");
+        int previous = Integer.MAX_VALUE;
+        for (Map.Entry<String, Integer> entry : top.entrySet()) {
+            int count = entry.getValue();
+            check(count == expected[Integer.parseInt(entry.getKey().substring(4))],
+                    what + " counted " + count + " loans of " + entry.getKey());
+            check(count <= previous, what + " is not sorted by count");
+            previous = count;
+        }
+        int above = 0;
+        for (int count : expected) {
+            if (count > previous) above++;
+        }
+        check(above < 5, what + " missed a book with more than " + previous + " loans");
+    }
+}
@@ -0,0 +1,146 @@
+package model;
+
+import static harness.Harness.check;
+import static harness.Harness.intArg;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the epoch-day date paths of Transaction with LocalDate
+ * equivalents on a large loan list: an overdue scan with isOverdue(int)
+ * against due dates computed per call (as isOverdue did before the days
+ * were stored), and a sort with BY_DUE_DATE against a getDueDate
+ * comparator. Reports time, bytes allocated by the thread and collector
+ * activity for each, and checks that both paths agree.
+ * Usage: java -Xmx2g model.TransactionDateBenchmark [loans] [rounds]
+ */
+public class TransactionDateBenchmark {
+
+    public static void main(String[] args) {
+        int loanCount = intArg(args, 0, 2_000_000);
+        int rounds = intArg(args, 1, 5);
+        Random random = new Random(14);
+        LocalDate today = LocalDate.now();
+        System.out.println(loanCount + " loans, " + rounds + " rounds of each");
+
+        List<Transaction> loans = new ArrayList<>(loanCount);
+        for (int i = 0; i < loanCount; i++) {
+            Transaction t = new Transaction("978-" + random.nextInt(50_000), "B" + random.nextInt(20_000),
+                    today.minusDays(random.nextInt(60)));
+            if (random.nextInt(4) == 0) {
+                t.setStatus(LoanStatus.RETURNED);
+                t.setReturnDate(today);
+            }
+            loans.add(t);
+        }
+
+        int todayDay = (int) today.toEpochDay();
+        Measure epochScan = new Measure();
+        Measure localDateScan = new Measure();
+        for (int r = 0; r < rounds; r++) {
+            epochScan.start();
+            int epochOverdue = 0;
+            for (Transaction t : loans) {
+                if (t.isOverdue(todayDay)) epochOverdue++;
+            }
+            epochScan.stop();
+
+            localDateScan.start();
+            int localDateOverdue = 0;
+            for (Transaction t : loans) {
+                if (t.getStatus().isOpen()
+                        && t.getBorrowDate().plusDays(Transaction.LOAN_PERIOD_DAYS).isBefore(LocalDate.now())) {
+                    localDateOverdue++;
+                }
+            }
+            localDateScan.stop();
+            check(epochOverdue == localDateOverdue, "overdue scans counted " + epochOverdue
+                    + " and " + localDateOverdue);
+        }
+        epochScan.print("Overdue scan, isOverdue(int)", rounds);
+        localDateScan.print("Overdue scan, LocalDate", rounds);
+
+        Comparator<Transaction> byLocalDueDate = Comparator.comparing(Transaction::getDueDate);
+        Measure epochSort = new Measure();
+        Measure localDateSort = new Measure();
+        for (int r = 0; r < rounds; r++) {
+            List<Transaction> sorted = new ArrayList<>(loans);
+            epochSort.start();
+            sorted.sort(Transaction.BY_DUE_DATE);
+            epochSort.stop();
+
+            List<Transaction> reference = new ArrayList<>(loans);
+            localDateSort.start();
+            reference.sort(byLocalDueDate);
+            localDateSort.stop();
+            // Both sorts are stable, so equal due dates keep the same order
+            check(sorted.equals(reference), "sort orders differ");
+        }
+        epochSort.print("Sort, BY_DUE_DATE", rounds);
+        localDateSort.print("Sort, getDueDate comparator", rounds);
+        System.out.println("OK: both date paths agreed.");
+    }
+
+    // Wall time, bytes allocated by this thread and collections over the measured sections
+    private static final class Measure {
+        long nanos;
+        long bytes;
+        long collections;
+        long collectionMillis;
+        private long startNanos;
+        private long startBytes;
+        private long startCollections;
+        private long startCollectionMillis;
+
+        void start() {
+            startCollections = collections();
+            startCollectionMillis = collectionMillis();
+            startBytes = allocatedBytes();
+            startNanos = System.nanoTime();
+        }
+
+        void stop() {
+            nanos += System.nanoTime() - startNanos;
+            bytes += allocatedBytes() - startBytes;
+            collections += collections() - startCollections;
+            collectionMillis += collectionMillis() - startCollectionMillis;
+        }
+
+        void print(String label, int rounds) {
+            System.out.printf("%-30s %7.1f ms, %8.1f MB allocated, %d GCs (%d ms) per round%n",
+                    label, nanos / 1e6 / rounds, bytes / 1e6 / rounds,
+                    collections / rounds, collectionMillis / rounds);
+        }
+    }
+
+    // -1 if the JVM cannot report per-thread allocation
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static long collections() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long collectionMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+}
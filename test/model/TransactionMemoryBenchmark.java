@@ -0,0 +1,68 @@
+package model;
+
+import static harness.Harness.check;
+import static harness.Harness.intArg;
+import static harness.Harness.usedHeapAfterGc;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Measures the heap retained per transaction loaded from file, with
+ * fromFileString (which interns ISBNs and borrower IDs) and with the same
+ * parse keeping each record's own identifier strings. Lines cycle through a
+ * fixed number of ISBNs and borrowers, as a long-lived library's log does.
+ * Run with a fixed heap for steadier figures.
+ * Usage: java -Xms3g -Xmx3g model.TransactionMemoryBenchmark [records] [isbns] [borrowers]
+ */
+public class TransactionMemoryBenchmark {
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    public static void main(String[] args) {
+        int records = intArg(args, 0, 2_000_000);
+        int isbns = intArg(args, 1, 50_000);
+        int borrowers = intArg(args, 2, 20_000);
+        System.out.println(records + " records, " + isbns + " ISBNs, " + borrowers + " borrowers");
+
+        String[] lines = new String[records];
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < records; i++) {
+            lines[i] = "978-" + (i % isbns) + "|B" + (i % borrowers) + "|"
+                    + start.plusDays(i % 365).format(FORMAT) + "|null|borrowed|" + (i + 1);
+        }
+
+        // Separate copies per record first, so the interning pool is still empty
+        long before = usedHeapAfterGc();
+        Transaction[] plain = new Transaction[records];
+        for (int i = 0; i < records; i++) {
+            plain[i] = parseWithoutInterning(lines[i]);
+        }
+        double plainBytes = (double) (usedHeapAfterGc() - before) / records;
+        check(plain[records - 1].getLoanId() == records, "last plain record has loan id "
+                + plain[records - 1].getLoanId());
+        plain = null;
+
+        before = usedHeapAfterGc();
+        Transaction[] interned = new Transaction[records];
+        for (int i = 0; i < records; i++) {
+            interned[i] = Transaction.fromFileString(lines[i]);
+        }
+        double internedBytes = (double) (usedHeapAfterGc() - before) / records;
+        check(interned[0].getBookIsbn() == interned[isbns].getBookIsbn(), "ISBNs are not shared");
+        check(interned[0].getBorrowerId() == interned[borrowers].getBorrowerId(), "borrower IDs are not shared");
+
+        System.out.printf("Own identifier strings: %.0f bytes retained per transaction%n", plainBytes);
+        System.out.printf("fromFileString:         %.0f bytes retained per transaction (pools included)%n",
+                internedBytes);
+        System.out.println("OK: interned records share their identifiers.");
+    }
+
+    // fromFileString without the intern pools
+    private static Transaction parseWithoutInterning(String line) {
+        String[] parts = line.split("\\|");
+        Transaction t = new Transaction(parts[0], parts[1], LocalDate.parse(parts[2], FORMAT),
+                parts[3].equals("null") ? null : LocalDate.parse(parts[3], FORMAT), LoanStatus.fromCode(parts[4]));
+        t.setLoanId(Long.parseLong(parts[5]));
+        return t;
+    }
+}
@@ -0,0 +1,198 @@
+package utils;
+
+import static harness.Harness.check;
+import static harness.Harness.intArg;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks WriteAheadLog recovery: a torn final record and a record whose
+ * CRC no longer matches are cut off on open (with everything after them),
+ * replay(afterSequence) skips what a snapshot covers, and sequence numbers
+ * keep counting up across truncate(), reopening and advanceSequenceTo.
+ * Finally several threads append at once under EVERY_RECORD and every
+ * record must come back exactly once, numbered without gaps.
+ * Usage: java utils.WriteAheadLogTest [threads] [appendsPerThread]
+ */
+public class WriteAheadLogTest {
+    // [int payload length][long sequence][int CRC32]
+    private static final int HEADER_SIZE = 4 + 8 + 4;
+
+    public static void main(String[] args) throws Exception {
+        int threads = intArg(args, 0, 8);
+        int appendsPerThread = intArg(args, 1, 500);
+        Path dir = Files.createTempDirectory("wal-test");
+        try {
+            tornTail(dir.resolve("torn.log"));
+            crcMismatch(dir.resolve("crc.log"));
+            replayAfter(dir.resolve("replay.log"));
+            sequenceAfterTruncate(dir.resolve("truncate.log"));
+            concurrentAppends(dir.resolve("concurrent.log"), threads, appendsPerThread);
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (Path file : files.toArray(Path[]::new)) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+        System.out.println("OK: the log recovered to its last intact record in every case.");
+    }
+
+    private static void tornTail(Path path) throws IOException {
+        try (WriteAheadLog log = open(path)) {
+            for (int i = 1; i <= 3; i++) log.append("record " + i);
+        }
+        long intact = Files.size(path);
+
+        // A crash mid-write: a header promising 100 bytes, then only 10 of them
+        ByteBuffer torn = ByteBuffer.allocate(HEADER_SIZE + 10);
+        torn.putInt(100).putLong(4).putInt(0);
+        torn.rewind();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.APPEND)) {
+            channel.write(torn);
+        }
+        check(Files.size(path) == intact + HEADER_SIZE + 10, "torn record not written");
+
+        try (WriteAheadLog log = open(path)) {
+            check(Files.size(path) == intact, "torn tail left at " + Files.size(path) + " bytes, expected " + intact);
+            check(payloads(log, 0).equals(List.of("record 1", "record 2", "record 3")), "records lost before the torn tail");
+            check(log.append("record 4") == 4, "append after the torn tail is not sequence 4");
+        }
+        try (WriteAheadLog log = open(path)) {
+            check(payloads(log, 0).size() == 4, "record appended after the torn tail not replayed");
+        }
+        System.out.println("Torn tail: cut back to " + intact + " bytes, appends resume at sequence 4");
+    }
+
+    private static void crcMismatch(Path path) throws IOException {
+        List<Long> offsets = new ArrayList<>();
+        try (WriteAheadLog log = open(path)) {
+            for (int i = 1; i <= 5; i++) {
+                offsets.add(Files.size(path));
+                log.append("record " + i);
+            }
+        }
+
+        // Flip one payload byte of record 3; records 4 and 5 are intact but follow it
+        long corrupt = offsets.get(2) + HEADER_SIZE;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, corrupt);
+            b.put(0, (byte) (b.get(0) ^ 0x01));
+            b.rewind();
+            channel.write(b, corrupt);
+        }
+
+        try (WriteAheadLog log = open(path)) {
+            check(payloads(log, 0).equals(List.of("record 1", "record 2")), "replay did not stop at the corrupt record");
+            check(Files.size(path) == offsets.get(2), "log not cut at the corrupt record");
+            check(log.getLastSequence() == 2, "last sequence " + log.getLastSequence() + " after the cut, expected 2");
+            check(log.append("record 3 again") == 3, "append after the cut is not sequence 3");
+        }
+        System.out.println("CRC mismatch: records from sequence 3 on discarded, appends resume at 3");
+    }
+
+    private static void replayAfter(Path path) throws IOException {
+        try (WriteAheadLog log = open(path)) {
+            for (int i = 1; i <= 5; i++) log.append("record " + i);
+
+            List<Long> sequences = new ArrayList<>();
+            List<String> payloads = new ArrayList<>();
+            log.replay(3, (payload, sequence) -> {
+                payloads.add(payload);
+                sequences.add(sequence);
+            });
+            check(sequences.equals(List.of(4L, 5L)), "replay(3) passed sequences " + sequences);
+            check(payloads.equals(List.of("record 4", "record 5")), "replay(3) passed " + payloads);
+            check(payloads(log, 5).isEmpty(), "replay(5) passed records");
+            check(payloads(log, 0).size() == 5, "replay(0) did not pass every record");
+        }
+        System.out.println("replay(afterSequence): only later records passed on");
+    }
+
+    private static void sequenceAfterTruncate(Path path) throws IOException {
+        try (WriteAheadLog log = open(path)) {
+            for (int i = 1; i <= 3; i++) log.append("record " + i);
+            log.truncate();
+            check(Files.size(path) == 0, "truncate left " + Files.size(path) + " bytes");
+            check(payloads(log, 0).isEmpty(), "records replayed after truncate");
+            check(log.append("record 4") == 4, "sequence restarted after truncate");
+        }
+        try (WriteAheadLog log = open(path)) {
+            check(log.getLastSequence() == 4, "reopened log at sequence " + log.getLastSequence() + ", expected 4");
+            check(log.append("record 5") == 5, "reopened log does not continue at 5");
+            log.truncate();
+        }
+
+        // Reopening an empty log forgets the count; the snapshot's sequence restores it
+        try (WriteAheadLog log = open(path)) {
+            check(log.getLastSequence() == 0, "empty log opened at sequence " + log.getLastSequence());
+            log.advanceSequenceTo(5);
+            log.advanceSequenceTo(2); // never moves back
+            check(log.append("record 6") == 6, "append after advanceSequenceTo(5) is not sequence 6");
+            check(payloads(log, 5).equals(List.of("record 6")), "replay(5) after the advance");
+        }
+        try (WriteAheadLog log = open(path)) {
+            check(log.append("record 7") == 7, "reopened log does not continue at 7");
+        }
+        System.out.println("truncate + advanceSequenceTo: sequences 1..7 handed out once each");
+    }
+
+    private static void concurrentAppends(Path path, int threads, int appendsPerThread) throws Exception {
+        AtomicLong sequenceSum = new AtomicLong();
+        try (WriteAheadLog log = open(path)) {
+            Thread[] workers = new Thread[threads];
+            IOException[] failures = new IOException[threads];
+            for (int t = 0; t < threads; t++) {
+                int id = t;
+                workers[t] = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < appendsPerThread; i++) {
+                            sequenceSum.addAndGet(log.append("desk " + id + " record " + i));
+                        }
+                    } catch (IOException e) {
+                        failures[id] = e;
+                    }
+                });
+                workers[t].start();
+            }
+            for (Thread worker : workers) worker.join();
+            for (IOException failure : failures) {
+                if (failure != null) throw failure;
+            }
+            System.out.println("Concurrent appends: " + log);
+        }
+
+        long total = (long) threads * appendsPerThread;
+        check(sequenceSum.get() == total * (total + 1) / 2, "sequence numbers handed out twice or skipped");
+        try (WriteAheadLog log = open(path)) {
+            long[] expected = {1};
+            List<String> seen = new ArrayList<>();
+            log.replay(0, (payload, sequence) -> {
+                check(sequence == expected[0]++, "replayed sequence " + sequence + " out of order");
+                seen.add(payload);
+            });
+            check(seen.size() == total, "replayed " + seen.size() + " of " + total + " records");
+            check(seen.stream().distinct().count() == total, "a record was replayed twice");
+        }
+    }
+
+    private static WriteAheadLog open(Path path) throws IOException {
+        return new WriteAheadLog(path, WriteAheadLog.SyncPolicy.EVERY_RECORD, 0);
+    }
+
+    private static List<String> payloads(WriteAheadLog log, long afterSequence) throws IOException {
+        List<String> payloads = new ArrayList<>();
+        log.replay(afterSequence, (String payload) -> payloads.add(payload));
+        return payloads;
+    }
+}